@@ -0,0 +1,253 @@
+package taskmanager.core.managers;
+
+import taskmanager.core.model.*;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Компактный бинарный формат файла задач.
+ * Файл начинается с магического числа и версии формата, затем идут записи с префиксом длины.
+ * Идентификаторы, перечисления, время (секунды эпохи UTC) и продолжительность (секунды) хранятся как примитивы,
+ * поэтому загрузка не требует разбора строк и дат.
+ * <p>
+ * Запись версии 1: type(byte), id(int), status(byte), epicId(int), start(long), duration(long),
+ * title(string), description(string), где string - длина в байтах (int, -1 для null) и байты UTF-8.
+ * Неизвестный хвост записи пропускается, что позволяет добавлять поля в новых версиях.
+ * Тип, статус и длины, выходящие за пределы записи, считаются ошибкой формата ({@link IOException}).
+ * <p>
+ * Начиная с версии 2 за каждой записью следует контрольная сумма CRC32C ее байтов (int).
+ * Файлы версии 1 читаются без проверки.
+ * <p>
+ * Начиная с версии 3 после задач может идти служебная запись с типом {@value #METADATA_TYPE}:
+ * nextId(int), count(int) и count идентификаторов истории просмотров (int).
+ */
+public class BinaryTaskFormat {
+    public static final byte[] MAGIC = {'K', 'B', 'T', 'S'}; // Признак бинарного файла
+    public static final byte VERSION = 3;
+    private static final int CHECKSUM_VERSION = 2; // Первая версия с контрольными суммами записей
+    public static final byte METADATA_TYPE = -1; // Тип служебной записи
+    private static final int METADATA_VERSION = 3; // Первая версия со служебной записью
+    private static final long NO_VALUE = Long.MIN_VALUE; // Отсутствующее время или продолжительность
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final int FIXED_FIELDS_SIZE = 1 + 4 + 1 + 4 + 8 + 8; // type, id, status, epicId, start, duration
+
+    private BinaryTaskFormat() {
+    }
+
+    /**
+     * Проверка, записан ли файл в бинарном формате
+     * @param path путь к файлу
+     * @return true, если файл начинается с магического числа
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * Запись заголовка файла
+     * @param out поток вывода
+     */
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Запись одной задачи с префиксом длины
+     * @param out поток вывода файла
+     * @param record переиспользуемый буфер записи
+     * @param task задача, эпик или подзадача
+     */
+    public static void writeRecord(DataOutputStream out, ByteArrayOutputStream record, Task task) throws IOException {
+        record.reset();
+        DataOutputStream fields = new DataOutputStream(record);
+        TaskType type = task instanceof Epic ? TaskType.EPIC :
+                task instanceof Subtask ? TaskType.SUBTASK : TaskType.TASK;
+        fields.writeByte(type.ordinal());
+        fields.writeInt(task.getId());
+        fields.writeByte(task.getStatus() != null ? task.getStatus().ordinal() : -1);
+        fields.writeInt(task instanceof Subtask subtask ? subtask.getEpicId() : -1);
+        boolean timed = type != TaskType.EPIC; // Время эпика вычисляется по подзадачам и не хранится
+        fields.writeLong(timed && task.getStartTime() != null
+                ? task.getStartTime().toEpochSecond(ZoneOffset.UTC) : NO_VALUE);
+        fields.writeLong(timed && task.getDuration() != null ? task.getDuration().getSeconds() : NO_VALUE);
+        writeString(fields, task.getTitle());
+        writeString(fields, task.getDescription());
+
+        writeChecked(out, record);
+    }
+
+    private static void writeChecked(DataOutputStream out, ByteArrayOutputStream record) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(record.toByteArray());
+        out.writeInt(record.size());
+        record.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Запись служебного состояния (следующий id и история просмотров)
+     * @param out поток вывода файла
+     * @param record переиспользуемый буфер записи
+     * @param metadata служебное состояние
+     */
+    public static void writeMetadata(DataOutputStream out, ByteArrayOutputStream record,
+                                     StorageMetadata metadata) throws IOException {
+        record.reset();
+        DataOutputStream fields = new DataOutputStream(record);
+        fields.writeByte(METADATA_TYPE);
+        fields.writeInt(metadata.nextId());
+        fields.writeInt(metadata.historyIds().length);
+        for (int id : metadata.historyIds()) {
+            fields.writeInt(id);
+        }
+        writeChecked(out, record);
+    }
+
+    /**
+     * Последовательное чтение записей файла с передачей каждой задачи в обработчик
+     * @param in поток чтения, позиционированный на начало файла
+     * @param consumer обработчик прочитанных задач
+     */
+    public static void read(DataInputStream in, Consumer<Task> consumer) throws IOException {
+        read(in, consumer, metadata -> {
+        });
+    }
+
+    /**
+     * Последовательное чтение записей файла, включая служебную запись
+     * @param in поток чтения, позиционированный на начало файла
+     * @param consumer обработчик прочитанных задач
+     * @param metadataConsumer обработчик служебного состояния
+     */
+    public static void read(DataInputStream in, Consumer<Task> consumer,
+                            Consumer<StorageMetadata> metadataConsumer) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Файл не является бинарным файлом задач");
+        }
+        int version = in.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Неподдерживаемая версия формата: " + version);
+        }
+        boolean checked = version >= CHECKSUM_VERSION;
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[256]; // Переиспользуемый буфер записи
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return; // Записи закончились
+            }
+            if (length < 0) {
+                throw new IOException("Некорректная длина записи: " + length);
+            }
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, length);
+            if (checked) {
+                crc.reset();
+                crc.update(buffer, 0, length);
+                if (in.readInt() != (int) crc.getValue()) {
+                    throw new IOException("Контрольная сумма записи не совпадает");
+                }
+            }
+            if (version >= METADATA_VERSION && length > 0 && buffer[0] == METADATA_TYPE) {
+                metadataConsumer.accept(decodeMetadata(ByteBuffer.wrap(buffer, 1, length - 1)));
+            } else {
+                consumer.accept(decode(ByteBuffer.wrap(buffer, 0, length)));
+            }
+        }
+    }
+
+    private static StorageMetadata decodeMetadata(ByteBuffer record) throws IOException {
+        checkRemaining(record, 2 * Integer.BYTES);
+        int nextId = record.getInt();
+        int count = record.getInt();
+        if (count < 0 || count > record.remaining() / Integer.BYTES) {
+            throw new IOException("Некорректная длина истории в служебной записи: " + count);
+        }
+        int[] history = new int[count];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = record.getInt();
+        }
+        return new StorageMetadata(nextId, history);
+    }
+
+    private static Task decode(ByteBuffer record) throws IOException {
+        checkRemaining(record, FIXED_FIELDS_SIZE);
+        byte typeOrdinal = record.get();
+        if (typeOrdinal < 0 || typeOrdinal >= TYPES.length) {
+            throw new IOException("Неизвестный тип задачи в записи: " + typeOrdinal);
+        }
+        TaskType type = TYPES[typeOrdinal];
+        int id = record.getInt();
+        byte statusOrdinal = record.get();
+        if (statusOrdinal >= STATUSES.length) {
+            throw new IOException("Неизвестный статус задачи в записи: " + statusOrdinal);
+        }
+        Status status = statusOrdinal >= 0 ? STATUSES[statusOrdinal] : Status.NEW;
+        int epicId = record.getInt();
+        long start = record.getLong();
+        long duration = record.getLong();
+        String title = readString(record);
+        String description = readString(record);
+
+        LocalDateTime startTime = start != NO_VALUE ? LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC) : null;
+        Duration taskDuration = duration != NO_VALUE ? Duration.ofSeconds(duration) : null;
+        Task task = switch (type) {
+            case TASK -> new Task(title, description, status, taskDuration, startTime);
+            case EPIC -> new Epic(title, description);
+            case SUBTASK -> new Subtask(title, description, status, epicId, taskDuration, startTime);
+        };
+        task.setId(id);
+        task.setStatus(status);
+        return task;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) throws IOException {
+        checkRemaining(record, Integer.BYTES);
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        checkRemaining(record, length);
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static void checkRemaining(ByteBuffer record, int length) throws IOException {
+        if (record.remaining() < length) {
+            throw new IOException("Запись короче ожидаемого: нужно " + length + " байт, осталось " + record.remaining());
+        }
+    }
+}
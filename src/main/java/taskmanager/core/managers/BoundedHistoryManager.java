@@ -0,0 +1,176 @@
+package taskmanager.core.managers;
+
+import taskmanager.core.model.Task;
+
+import java.util.List;
+
+/**
+ * История просмотров ограниченного размера без выделения памяти при записи просмотра.
+ * Двусвязный список хранится в параллельных массивах prev/next/ids/tasks фиксированной емкости,
+ * индекс id -> ячейка - хеш-таблица с открытой адресацией на массивах int.
+ * При переполнении вытесняется самый старый просмотр, его ячейка переиспользуется.
+ * Список, возвращаемый {@link #getHistory()}, неизменяемый и строится заново только после изменений истории.
+ */
+public class BoundedHistoryManager implements HistoryManager {
+    private static final int NONE = -1; // Отсутствующая ячейка
+    private final int capacity;
+    private final int[] prev; // Ячейка предыдущего просмотра
+    private final int[] next; // Ячейка следующего просмотра, для свободных ячеек - следующая свободная
+    private final int[] ids; // id задачи в ячейке
+    private final Task[] tasks; // Задача в ячейке
+    private final int[] indexKeys; // Хеш-таблица id -> ячейка: ключи
+    private final int[] indexSlots; // Ячейка + 1, 0 - пустая позиция таблицы
+    private final int indexMask;
+    private int head = NONE; // Самый старый просмотр
+    private int tail = NONE; // Последний просмотр
+    private int free; // Первая свободная ячейка
+    private int size;
+    private List<Task> history = List.of(); // Последний построенный список, null после изменений
+
+    /**
+     * @param capacity максимальное число задач в истории
+     */
+    public BoundedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным");
+        }
+        this.capacity = capacity;
+        prev = new int[capacity];
+        next = new int[capacity];
+        ids = new int[capacity];
+        tasks = new Task[capacity];
+        for (int slot = 0; slot < capacity; slot++) {
+            next[slot] = slot + 1 < capacity ? slot + 1 : NONE;
+        }
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1; // Таблица заполнена не более чем наполовину
+        indexKeys = new int[tableSize];
+        indexSlots = new int[tableSize];
+        indexMask = tableSize - 1;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        int slot = find(task.getId());
+        if (slot != NONE) {
+            if (slot == tail && tasks[slot] == task) {
+                return; // Повторный просмотр той же задачи ничего не меняет
+            }
+            unlink(slot);
+        } else {
+            if (size == capacity) {
+                evict(head);
+            }
+            slot = free;
+            free = next[slot];
+            ids[slot] = task.getId();
+            indexPut(task.getId(), slot);
+            size++;
+        }
+        tasks[slot] = task;
+        linkLast(slot);
+        history = null;
+    }
+
+    @Override
+    public void remove(int id) {
+        int slot = find(id);
+        if (slot != NONE) {
+            evict(slot);
+            history = null;
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        if (history == null) {
+            Task[] ordered = new Task[size];
+            int i = 0;
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                ordered[i++] = tasks[slot];
+            }
+            history = List.of(ordered);
+        }
+        return history;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void evict(int slot) { // Удаление просмотра с возвратом ячейки в список свободных
+        unlink(slot);
+        indexRemove(ids[slot]);
+        tasks[slot] = null; // Задача больше не удерживается историей
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        if (prev[slot] == NONE) {
+            head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    private int position(int id) {
+        int hash = id ^ (id >>> 16);
+        return (hash * 0x9E3779B9) & indexMask;
+    }
+
+    private int find(int id) {
+        for (int pos = position(id); indexSlots[pos] != 0; pos = (pos + 1) & indexMask) {
+            if (indexKeys[pos] == id) {
+                return indexSlots[pos] - 1;
+            }
+        }
+        return NONE;
+    }
+
+    private void indexPut(int id, int slot) {
+        int pos = position(id);
+        while (indexSlots[pos] != 0) {
+            pos = (pos + 1) & indexMask;
+        }
+        indexKeys[pos] = id;
+        indexSlots[pos] = slot + 1;
+    }
+
+    private void indexRemove(int id) {
+        int pos = position(id);
+        while (indexKeys[pos] != id || indexSlots[pos] == 0) {
+            pos = (pos + 1) & indexMask;
+        }
+        // Обратный сдвиг: следующие элементы цепочки переносятся на освободившуюся позицию
+        int gap = pos;
+        for (pos = (pos + 1) & indexMask; indexSlots[pos] != 0; pos = (pos + 1) & indexMask) {
+            int home = position(indexKeys[pos]);
+            if (((pos - home) & indexMask) >= ((pos - gap) & indexMask)) {
+                indexKeys[gap] = indexKeys[pos];
+                indexSlots[gap] = indexSlots[pos];
+                gap = pos;
+            }
+        }
+        indexSlots[gap] = 0;
+    }
+}
@@ -0,0 +1,423 @@
+package taskmanager.core.managers;
+
+import taskmanager.core.model.*;
+import taskmanager.core.util.IntSet;
+import taskmanager.core.util.PersistentSortedMap;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасная обертка над любым {@link TaskManager}.
+ * Изменяющие методы выполняются под блокировкой записи, списки и поиск - под блокировкой чтения,
+ * поэтому чтения выполняются параллельно друг с другом и никогда не видят частично примененное изменение.
+ * <p>
+ * Блокировка одна на весь менеджер, а не по эпикам: каждое изменение затрагивает общие структуры
+ * (счетчик id, индекс интервалов, приоритезированный список, файл или журнал), и разбиение по эпикам
+ * не защитило бы их. Поиск по id дополнительно записывает историю просмотров, поэтому такие вызовы
+ * и getHistory упорядочиваются отдельной короткой блокировкой истории, не мешая спискам.
+ * <p>
+ * Списки задач, подзадач, эпиков и приоритезированный список отдаются как неизменяемые снимки версии
+ * {@link TaskManager#getVersion()}. Снимок хранит собственные копии задач ({@link Task#copy()}), поэтому
+ * не меняется и тогда, когда менеджер изменяет объекты на месте (статус и время эпика пересчитываются
+ * в том же объекте). Коллекции снимка - {@link PersistentSortedMap}: новый снимок публикует сам писатель
+ * сразу после изменения, заменяя копии только измененных задач (по журналу изменений
+ * {@link InMemoryTaskManager}; для других реализаций снимок каждой новой версии строится заново)
+ * за O(k log n), а остальные узлы и копии общие с прежним снимком. Читатели получают готовый снимок за O(1)
+ * без блокировок и копирования, неизменившаяся коллекция отдается тем же объектом списка.
+ * Версии ведет обертываемый менеджер, поэтому после изменений, внесенных в него напрямую, снимок
+ * обновляется по той же разнице первым читателем; если разница уже не хранится, снимок строится заново.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager delegate; // Обертываемый менеджер, доступ к нему только через блокировки
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    private final Object historyLock = new Object(); // Защита истории просмотров при параллельных чтениях
+    private final Object snapshotLock = new Object(); // Обновление снимка читателями под блокировкой чтения
+    private volatile Snapshot snapshot = Snapshot.EMPTY; // Последний опубликованный снимок
+
+    public ConcurrentTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return неизменяемый снимок задач текущей версии
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        return snapshot().tasks().values();
+    }
+
+    /**
+     * @return неизменяемый снимок подзадач текущей версии
+     */
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return snapshot().subtasks().values();
+    }
+
+    /**
+     * @return неизменяемый снимок эпиков текущей версии
+     */
+    @Override
+    public List<Epic> getAllEpics() {
+        return snapshot().epics().values();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(delegate::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(delegate::deleteAllSubtasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(delegate::deleteAllEpics);
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return readWithHistory(() -> delegate.getTaskById(id));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return readWithHistory(() -> delegate.getSubtaskById(id));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return readWithHistory(() -> delegate.getEpicById(id));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return readWithHistory(delegate::getHistory);
+    }
+
+    /**
+     * @return неизменяемый снимок приоритезированного списка текущей версии
+     */
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return snapshot().prioritized().values();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> delegate.getPrioritizedTasks(from, to));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime from, LocalDateTime to) {
+        return read(() -> delegate.findFreeSlot(duration, from, to));
+    }
+
+    @Override
+    public List<Task> autoSchedule(List<? extends Task> batch, LocalDateTime from, LocalDateTime to) {
+        return write(() -> delegate.autoSchedule(batch, from, to));
+    }
+
+    /**
+     * Версии читаются без блокировок: обертываемый менеджер публикует их через volatile-поля
+     */
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public long getVersion(TaskType type) {
+        return delegate.getVersion(type);
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return delegate.getHistoryVersion();
+    }
+
+    /**
+     * Версия задачи хранится в индексе обертываемого менеджера и читается под блокировкой чтения
+     */
+    @Override
+    public long getEntityVersion(int id) {
+        return read(() -> delegate.getEntityVersion(id));
+    }
+
+    @Override
+    public void addTask(Task task) {
+        write(() -> delegate.addTask(task));
+    }
+
+    @Override
+    public void addAll(List<? extends Task> batch) {
+        write(() -> delegate.addAll(batch));
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> batch) {
+        write(() -> delegate.updateAll(batch));
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) {
+        write(() -> delegate.deleteAll(ids));
+    }
+
+    @Override
+    public void addSubtask(Subtask subtask) {
+        write(() -> delegate.addSubtask(subtask));
+    }
+
+    @Override
+    public void addEpic(Epic epic) {
+        write(() -> delegate.addEpic(epic));
+    }
+
+    @Override
+    public void updateEpicStatus(int epicId) {
+        write(() -> delegate.updateEpicStatus(epicId));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        write(() -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        write(() -> delegate.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        write(() -> delegate.deleteSubtaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        write(() -> delegate.deleteEpicById(id));
+    }
+
+    @Override
+    public boolean hasTimeOverlap(Task task) {
+        return read(() -> delegate.hasTimeOverlap(task));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasksByEpicId(int epicId) {
+        return read(() -> delegate.getAllSubtasksByEpicId(epicId));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskType type, Status status) {
+        return read(() -> delegate.findTasks(type, status));
+    }
+
+    @Override
+    public List<Task> getPage(TaskType type, Status status, int afterId, int limit) {
+        return read(() -> delegate.getPage(type, status, afterId, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedPage(LocalDateTime afterStart, int afterId, int limit) {
+        return read(() -> delegate.getPrioritizedPage(afterStart, afterId, limit));
+    }
+
+    /**
+     * Снимок текущей версии: опубликованный снимок возвращается без блокировок,
+     * устаревший (после изменений в обертываемом менеджере напрямую) обновляется под блокировкой чтения
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current.version() == delegate.getVersion()) {
+            return current;
+        }
+        readLock.lock();
+        try {
+            return refresh();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Обновление снимка до версии обертываемого менеджера; вызывается под блокировкой чтения или записи,
+     * поэтому менеджер в это время не меняется. Параллельные читатели обновляют снимок по очереди
+     * @return опубликованный снимок текущей версии
+     */
+    private Snapshot refresh() {
+        synchronized (snapshotLock) {
+            Snapshot current = snapshot;
+            long version = delegate.getVersion();
+            if (current.version() == version) {
+                return current;
+            }
+            InMemoryTaskManager feed = delegate instanceof InMemoryTaskManager inMemory ? inMemory : null;
+            int[] changed = feed == null || current.version() < 0 ? null : feed.getChangedIds(current.stamp());
+            Snapshot next = changed != null
+                    ? current.apply(changed, feed, version)
+                    : Snapshot.build(delegate, feed != null ? feed.getChangeStamp() : -1, version);
+            snapshot = next;
+            return next;
+        }
+    }
+
+    private <T> T read(Supplier<T> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private <T> T readWithHistory(Supplier<T> action) {
+        readLock.lock();
+        try {
+            synchronized (historyLock) {
+                return action.get();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Изменение под блокировкой записи; новый снимок публикуется до снятия блокировки,
+     * поэтому читатели после записи не перестраивают его сами
+     */
+    private <T> T write(Supplier<T> action) {
+        writeLock.lock();
+        try {
+            T result = action.get();
+            refresh();
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Неизменяемый снимок всех коллекций для версии менеджера; stamp - номер последнего изменения задач,
+     * от которого считается разница при следующем обновлении
+     */
+    private record Snapshot(long version, long stamp,
+                            PersistentSortedMap<Integer, Task> tasks,
+                            PersistentSortedMap<Integer, Subtask> subtasks,
+                            PersistentSortedMap<Integer, Epic> epics,
+                            PersistentSortedMap<ScheduleKey, Task> prioritized) {
+        static final Snapshot EMPTY = new Snapshot(-1, -1,
+                PersistentSortedMap.empty(Comparator.naturalOrder()),
+                PersistentSortedMap.empty(Comparator.naturalOrder()),
+                PersistentSortedMap.empty(Comparator.naturalOrder()),
+                PersistentSortedMap.empty(ScheduleKey.ORDER));
+
+        /**
+         * Полное построение снимка по копиям всех задач за O(n log n)
+         * @param stamp номер последнего изменения задач или -1, если менеджер не ведет журнал изменений
+         */
+        static Snapshot build(TaskManager source, long stamp, long version) {
+            Snapshot result = new Snapshot(version, stamp,
+                    EMPTY.tasks, EMPTY.subtasks, EMPTY.epics, EMPTY.prioritized);
+            for (Task task : source.getAllTasks()) {
+                result = result.with(task.copy());
+            }
+            for (Subtask subtask : source.getAllSubtasks()) {
+                result = result.with(subtask.copy());
+            }
+            for (Epic epic : source.getAllEpics()) {
+                result = result.with(epic.copy());
+            }
+            return result;
+        }
+
+        /**
+         * Новый снимок, в котором заменены только копии измененных задач
+         * @param changed id измененных и удаленных задач
+         */
+        Snapshot apply(int[] changed, InMemoryTaskManager source, long version) {
+            Snapshot result = new Snapshot(version, source.getChangeStamp(), tasks, subtasks, epics, prioritized);
+            IntSet seen = new IntSet();
+            for (int id : changed) {
+                if (seen.add(id)) {
+                    result = result.without(id);
+                    Task current = source.internalFind(id);
+                    if (current != null) {
+                        result = result.with(current.copy());
+                    }
+                }
+            }
+            return result;
+        }
+
+        private Snapshot with(Task copy) {
+            if (copy instanceof Epic epic) {
+                return new Snapshot(version, stamp, tasks, subtasks, epics.plus(epic.getId(), epic), prioritized);
+            }
+            PersistentSortedMap<ScheduleKey, Task> schedule = copy.getStartTime() != null
+                    ? prioritized.plus(ScheduleKey.of(copy), copy)
+                    : prioritized;
+            if (copy instanceof Subtask subtask) {
+                return new Snapshot(version, stamp, tasks, subtasks.plus(subtask.getId(), subtask), epics, schedule);
+            }
+            return new Snapshot(version, stamp, tasks.plus(copy.getId(), copy), subtasks, epics, schedule);
+        }
+
+        private Snapshot without(int id) {
+            Task old = tasks.get(id);
+            if (old == null) {
+                old = subtasks.get(id);
+            }
+            if (old == null) {
+                Epic epic = epics.get(id);
+                return epic == null ? this : new Snapshot(version, stamp, tasks, subtasks, epics.minus(id), prioritized);
+            }
+            PersistentSortedMap<ScheduleKey, Task> schedule = old.getStartTime() != null
+                    ? prioritized.minus(ScheduleKey.of(old))
+                    : prioritized;
+            return new Snapshot(version, stamp, tasks.minus(id), subtasks.minus(id), epics, schedule);
+        }
+    }
+
+    /**
+     * Ключ приоритезированного списка: время начала, при равенстве - id
+     */
+    private record ScheduleKey(LocalDateTime start, int id) {
+        static final Comparator<ScheduleKey> ORDER =
+                Comparator.comparing(ScheduleKey::start).thenComparingInt(ScheduleKey::id);
+
+        static ScheduleKey of(Task task) {
+            return new ScheduleKey(task.getStartTime(), task.getId());
+        }
+    }
+}
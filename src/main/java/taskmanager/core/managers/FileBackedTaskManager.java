@@ -2,35 +2,117 @@ package taskmanager.core.managers;
 
 import taskmanager.core.exceptions.ManagerSaveException;
 import taskmanager.core.model.*;
+import taskmanager.core.util.FsyncPolicy;
+import taskmanager.core.util.PersistenceMode;
 import taskmanager.core.util.Status;
+import taskmanager.core.util.StorageFormat;
 import taskmanager.core.util.TaskType;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import static taskmanager.core.util.Status.NEW;
 
 /**
  * Реализация менеджера задач с сохранением данных в файл.
  * Расширение InMemoryTaskManager, добавляет функционал сохранения состояния в CSV-файл.
+ * В режиме {@link PersistenceMode#JOURNAL} изменения дописываются в журнал рядом с CSV-файлом,
+ * а при загрузке журнал проигрывается поверх CSV.
+ * Когда журнал превышает заданное число записей или объем, в фоне создается снимок (тот же CSV-файл),
+ * и покрытые им сегменты журнала удаляются, поэтому при запуске проигрывается только хвост журнала.
+ * В режиме {@link PersistenceMode#ASYNC_JOURNAL} записи журнала выполняет отдельный поток группового коммита,
+ * а изменяющие методы не ждут диска; дождаться сохранения можно через {@link #whenPersisted()}.
+ * Основной файл (снимок) пишется в формате CSV или {@link BinaryTaskFormat}; при загрузке формат
+ * определяется по заголовку файла.
+ * В режиме {@link PersistenceMode#SEGMENTED} данные хранятся в каталоге filePath + ".segments" сегментами
+ * по {@value #SEGMENT_SIZE} идентификаторов; после изменения перезаписываются только сегменты измененных id.
+ * Файлы снимков и сегментов всегда пишутся во временный файл с атомарным переименованием,
+ * записи журнала защищены контрольными суммами; частоту принудительного сброса на диск задает {@link FsyncPolicy}.
+ * Вместе с задачами сохраняется {@link StorageMetadata}: следующий id и порядок истории просмотров.
+ * Просмотры сами по себе не вызывают записи: история попадает в файл при очередном сохранении,
+ * снимке или вызове {@link #close()}. В режиме SEGMENTED изменение задачи переписывает только ее сегмент:
+ * служебный файл с историей пишется в {@link #close()} и только если история или счетчик id изменились,
+ * а после удаления задач счетчик id при необходимости пишется в отдельный файл из одной записи.
  */
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    public static final Duration DEFAULT_COMMIT_WINDOW = Duration.ofMillis(2); // Окно группового коммита по умолчанию
+    public static final int DEFAULT_COMMIT_BATCH = 512; // Размер пакета группового коммита по умолчанию
     private final String filePath; // Путь к файлу для сохранения данных
+    public static final int SEGMENT_SIZE = 64; // Количество идентификаторов в одном сегменте
+    private final TaskJournal journal; // Журнал изменений, null в режимах без журнала
+    private final Path segmentDir; // Каталог сегментов, null вне режима SEGMENTED
+    private final BitSet dirtySegments = new BitSet(); // Номера сегментов с изменениями после последней записи
+    private boolean restoring; // Флаг восстановления: изменения при загрузке не сохраняются повторно
+    private long snapshotRecords = 10_000; // Порог числа записей журнала для создания снимка
+    private long snapshotBytes = 16L * 1024 * 1024; // Порог объема журнала для создания снимка
+    private ExecutorService snapshotExecutor; // Фоновый поток записи снимков, создается при первом снимке
+    private StorageFormat storageFormat = StorageFormat.CSV; // Формат записи основного файла
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.NEVER; // Политика сброса файлов на диск
+    private static final int READ_BUFFER_SIZE = 1 << 16; // Размер буфера потокового чтения файлов
+    private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024; // Максимальный размер части при параллельной загрузке
+    private static final String METADATA_FILE = "meta"; // Файл служебного состояния в каталоге сегментов
+    private static final String NEXT_ID_FILE = "next-id"; // Файл счетчика id в каталоге сегментов
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-\\d+"); // Имя файла сегмента
+    private int savedNextId; // Счетчик id, уже сохраненный в каталоге сегментов
+    private long savedHistoryVersion = -1; // Версия истории, уже сохраненная в каталоге сегментов
+    public static final long DEFAULT_PARALLEL_LOAD_THRESHOLD = 8L * 1024 * 1024; // Порог параллельного чтения CSV
+    private final long parallelLoadThreshold; // Размер CSV-файла, начиная с которого он читается параллельно
 
     /**
      * Конструктор для создания нового менеджера задач с указанием пути к файлу
      * @param filePath - Путь к файлу для сохранения/загрузки данных
      */
     public FileBackedTaskManager(String filePath) {
+        this(filePath, PersistenceMode.SNAPSHOT);
+    }
+
+    /**
+     * Конструктор с выбором режима сохранения
+     * @param filePath - Путь к файлу для сохранения/загрузки данных
+     * @param mode - SNAPSHOT (перезапись файла), JOURNAL (дозапись в файл filePath + ".journal")
+     *             ASYNC_JOURNAL (дозапись в журнал с групповым коммитом)
+     *             или SEGMENTED (перезапись измененных сегментов в каталоге filePath + ".segments")
+     */
+    public FileBackedTaskManager(String filePath, PersistenceMode mode) {
+        this(filePath, mode, DEFAULT_PARALLEL_LOAD_THRESHOLD);
+    }
+
+    /**
+     * Конструктор с выбором режима сохранения и порога параллельной загрузки
+     * @param filePath - Путь к файлу для сохранения/загрузки данных
+     * @param mode - режим сохранения
+     * @param parallelLoadThreshold - размер CSV-файла в байтах, начиная с которого он читается параллельно
+     */
+    public FileBackedTaskManager(String filePath, PersistenceMode mode, long parallelLoadThreshold) {
         super(); // Инициализация базового класса с пустыми коллекциями
         this.filePath = filePath; // Сохранение пути к файлу
+        this.parallelLoadThreshold = parallelLoadThreshold;
+        this.journal = mode == PersistenceMode.JOURNAL || mode == PersistenceMode.ASYNC_JOURNAL
+                ? new TaskJournal(filePath + ".journal") : null;
+        this.segmentDir = mode == PersistenceMode.SEGMENTED ? Path.of(filePath + ".segments") : null;
         loadFromFile(); // Загрузка данных из файла в память при инициализации
+        if (mode == PersistenceMode.ASYNC_JOURNAL) {
+            journal.startGroupCommit(DEFAULT_COMMIT_WINDOW, DEFAULT_COMMIT_BATCH);
+        }
     }
 
     /**
@@ -51,60 +133,348 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     /**
      * Переопределенные методы для автоматического сохранения при изменении данных
-     * Вызывают super-метод для изменения коллекции и save() для сохранения в файл
+     * Вызывают super-метод для изменения коллекции и persist-метод для сохранения изменения
      */
     @Override
     public void addTask(Task task) {
         super.addTask(task);
-        save();
+        persist(task);
     }
 
     @Override
     public void addSubtask(Subtask subtask) {
         super.addSubtask(subtask);
-        save();
+        persist(subtask);
     }
 
     @Override
     public void addEpic(Epic epic) {
         super.addEpic(epic);
-        save();
+        persist(epic);
     }
 
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        persist(task);
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
         super.updateSubtask(subtask);
-        save();
+        persist(subtask);
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        persist(epic);
     }
 
     @Override
     public void deleteTaskById(int id) {
         super.deleteTaskById(id);
-        save();
+        persistDelete(id);
     }
 
     @Override
     public void deleteSubtaskById(int id) {
         super.deleteSubtaskById(id);
-        save();
+        persistDelete(id);
     }
 
     @Override
     public void deleteEpicById(int id) {
         super.deleteEpicById(id);
-        save();
+        persistDelete(id);
+    }
+
+    @Override
+    public void addAll(List<? extends Task> batch) {
+        super.addAll(batch);
+        persistAll(batch);
+    }
+
+    @Override
+    public void updateAll(List<? extends Task> batch) {
+        super.updateAll(batch);
+        persistAll(batch);
+    }
+
+    @Override
+    public void deleteAll(List<Integer> ids) {
+        List<Integer> deleted = new ArrayList<>(ids);
+        for (int id : ids) { // Подзадачи удаляемых эпиков тоже меняют свои сегменты
+            if (internalFind(id) instanceof Epic epic) {
+                for (int subtaskId : epic.getSubtaskIdArray()) {
+                    deleted.add(subtaskId);
+                }
+            }
+        }
+        super.deleteAll(ids);
+        persistDeleteAll(deleted);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        if (segmentDir != null) getAllTasks().forEach(task -> markDirty(task.getId()));
+        super.deleteAllTasks();
+        persistClear(TaskType.TASK);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        if (segmentDir != null) getAllSubtasks().forEach(subtask -> markDirty(subtask.getId()));
+        super.deleteAllSubtasks();
+        persistClear(TaskType.SUBTASK);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        if (segmentDir != null) {
+            getAllEpics().forEach(epic -> markDirty(epic.getId()));
+            getAllSubtasks().forEach(subtask -> markDirty(subtask.getId()));
+        }
+        super.deleteAllEpics();
+        persistClear(TaskType.EPIC);
+    }
+
+    /**
+     * Сохранение добавленной или измененной задачи
+     * В режиме журнала дописывается одна запись, иначе файл перезаписывается целиком
+     * @param task - измененная задача
+     */
+    private void persist(Task task) {
+        if (restoring) return;
+        if (segmentDir != null) {
+            markDirty(task.getId());
+            saveDirtySegments();
+        } else if (journal == null) {
+            save();
+        } else {
+            journal.append(TaskJournal.Operation.PUT, toString(task));
+            snapshotIfNeeded();
+        }
+    }
+
+    /**
+     * Сохранение пакета изменений одной записью файла или сегментов
+     * В режиме журнала записи пакета дописываются подряд, а снимок проверяется один раз
+     * @param batch - добавленные или измененные задачи
+     */
+    private void persistAll(List<? extends Task> batch) {
+        if (restoring || batch.isEmpty()) return;
+        if (segmentDir != null) {
+            batch.forEach(task -> markDirty(task.getId()));
+            saveDirtySegments();
+        } else if (journal == null) {
+            save();
+        } else {
+            batch.forEach(task -> journal.append(TaskJournal.Operation.PUT, toString(task)));
+            snapshotIfNeeded();
+        }
+    }
+
+    private void persistDeleteAll(List<Integer> ids) {
+        if (restoring || ids.isEmpty()) return;
+        if (segmentDir != null) {
+            ids.forEach(this::markDirty);
+            saveDirtySegments();
+            saveNextId();
+        } else if (journal == null) {
+            save();
+        } else {
+            ids.forEach(id -> journal.append(TaskJournal.Operation.DELETE, String.valueOf(id)));
+            snapshotIfNeeded();
+        }
+    }
+
+    private void persistDelete(int id) {
+        if (restoring) return;
+        if (segmentDir != null) {
+            markDirty(id);
+            saveDirtySegments();
+            saveNextId();
+        } else if (journal == null) {
+            save();
+        } else {
+            journal.append(TaskJournal.Operation.DELETE, String.valueOf(id));
+            snapshotIfNeeded();
+        }
+    }
+
+    private void persistClear(TaskType type) {
+        if (restoring) return;
+        if (segmentDir != null) {
+            saveDirtySegments(); // Удаленные id отмечены до очистки коллекций
+            saveNextId();
+        } else if (journal == null) {
+            save();
+        } else {
+            journal.append(TaskJournal.Operation.CLEAR, type.name());
+            snapshotIfNeeded();
+        }
+    }
+
+    /**
+     * Перенастройка группового коммита: поставленные записи дописываются, поток записи перезапускается
+     * @param window - время ожидания дополнительных записей в пакет
+     * @param batchSize - максимальное число записей в пакете
+     */
+    public void setGroupCommit(Duration window, int batchSize) {
+        if (journal == null) {
+            throw new IllegalStateException("Групповой коммит доступен только в режиме журнала");
+        }
+        journal.close();
+        journal.startGroupCommit(window, batchSize);
+    }
+
+    /**
+     * Настройка политики принудительного сброса на диск (fsync) для журнала и файлов снимков.
+     * ALWAYS - после каждой записи (пакета), INTERVAL - не чаще заданного интервала, NEVER - без fsync.
+     * При INTERVAL запись журнала сбрасывается на диск не позже чем через интервал после предыдущего сброса,
+     * поэтому при сбое ОС или питания теряются изменения не старше интервала.
+     * Снимки и сегменты при любой политике, кроме NEVER, сбрасываются на диск перед переименованием.
+     * @param policy - политика сброса
+     * @param interval - интервал для политики INTERVAL
+     */
+    public void setFsyncPolicy(FsyncPolicy policy, Duration interval) {
+        if (policy == FsyncPolicy.INTERVAL && (interval == null || interval.isNegative())) {
+            throw new IllegalArgumentException("Для политики INTERVAL нужен неотрицательный интервал");
+        }
+        Duration checked = interval != null ? interval : Duration.ZERO;
+        this.fsyncPolicy = policy;
+        if (journal != null) {
+            journal.setFsyncPolicy(policy, checked);
+        }
+    }
+
+    /**
+     * Future сохранения: завершается, когда все уже выполненные изменения записаны на диск.
+     * В синхронных режимах возвращается завершенный future.
+     * @return future сохранения последнего изменения
+     */
+    public CompletableFuture<Void> whenPersisted() {
+        return journal == null ? CompletableFuture.completedFuture(null) : journal.whenPersisted();
+    }
+
+    /**
+     * Сохранение истории просмотров, дозапись всех поставленных в очередь изменений и остановка фоновых потоков.
+     * После закрытия менеджер продолжает работать, сохраняя изменения синхронно.
+     */
+    public void close() {
+        if (segmentDir != null) {
+            if (getNextId() != savedNextId || getHistoryVersion() != savedHistoryVersion) {
+                saveMetadata();
+            }
+        } else if (journal == null) {
+            save();
+        } else {
+            appendMetadata();
+            journal.close();
+        }
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            snapshotExecutor = null;
+        }
+    }
+
+    /**
+     * Выбор формата, в котором будет записываться основной файл
+     * Загрузка не зависит от настройки: формат определяется по заголовку файла
+     * @param storageFormat - CSV или BINARY
+     */
+    public void setStorageFormat(StorageFormat storageFormat) {
+        this.storageFormat = storageFormat;
+    }
+
+    /**
+     * Экспорт текущего состояния в CSV-файл независимо от выбранного формата хранения
+     * Импорт выполняется обычной загрузкой: CSV-файл распознается автоматически
+     * @param file - файл для экспорта
+     */
+    public void exportCsv(File file) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeSnapshot(out, StorageFormat.CSV);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при экспорте в файл", e);
+        }
+    }
+
+    /**
+     * Настройка порога создания снимка в режиме журнала
+     * @param maxRecords - число записей журнала, после которого создается снимок
+     * @param maxBytes - объем журнала в байтах, после которого создается снимок
+     */
+    public void setSnapshotThreshold(long maxRecords, long maxBytes) {
+        if (maxRecords <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Порог снимка должен быть положительным");
+        }
+        this.snapshotRecords = maxRecords;
+        this.snapshotBytes = maxBytes;
+    }
+
+    /**
+     * Создание снимка текущего состояния.
+     * В режиме журнала вызывающий поток только дописывает в журнал служебную запись (счетчик id и история)
+     * и закрывает активный файл журнала в сегмент после уже поставленных записей - это и есть граница снимка.
+     * Сам снимок строится в фоновом потоке без обращения к изменяемому состоянию менеджера
+     * (см. {@link #compact(List)}), затем файл записывается и покрытые сегменты удаляются.
+     * @return future, завершающийся после записи снимка на диск
+     */
+    public CompletableFuture<Void> snapshot() {
+        if (journal == null) {
+            save();
+            return CompletableFuture.completedFuture(null);
+        }
+        appendMetadata(); // История и счетчик id попадают в снимок через журнал
+        return journal.rotate().thenAcceptAsync(covered -> {
+            writeSnapshotAtomically(compact(covered));
+            journal.deleteSegments(covered);
+        }, snapshotExecutor()).whenComplete((ignored, e) -> {
+            if (e != null) { // Сегменты остаются на диске и будут проиграны при следующей загрузке
+                System.out.println("Ошибка при создании снимка: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Построение снимка по состоянию на момент ротации: прежний снимок загружается в отдельный менеджер,
+     * и поверх него проигрываются закрытые сегменты журнала. Текущие объекты задач не читаются,
+     * поэтому изменяющие методы не ждут сериализации всей доски и не конкурируют с ней.
+     * Вызывается только в потоке снимков, поэтому прежний снимок не меняется во время чтения.
+     * @param covered закрытые сегменты журнала, покрываемые снимком
+     * @return содержимое снимка в выбранном формате
+     */
+    private byte[] compact(List<Path> covered) {
+        FileBackedTaskManager view = new FileBackedTaskManager(filePath, PersistenceMode.SNAPSHOT,
+                parallelLoadThreshold);
+        view.restoring = true; // Проигранные записи не сохраняются повторно
+        view.setStorageFormat(storageFormat);
+        journal.readSegments(covered, view::replay);
+        return view.renderSnapshot();
+    }
+
+    private void appendMetadata() {
+        String meta = metadata().toCsv();
+        journal.append(TaskJournal.Operation.META, meta.substring(meta.indexOf(',') + 1));
+    }
+
+    private void snapshotIfNeeded() {
+        if (journal.getRecords() >= snapshotRecords || journal.getBytes() >= snapshotBytes) {
+            snapshot();
+        }
+    }
+
+    private ExecutorService snapshotExecutor() {
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-snapshot-writer");
+                thread.setDaemon(true); // Поток не должен удерживать JVM; журнал остается источником истины
+                return thread;
+            });
+        }
+        return snapshotExecutor;
     }
 
     /**
@@ -121,34 +491,352 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         }
     }
 
+    /**
+     * Разбор служебной строки с пропуском некорректных данных
+     * @param line - строка вида #meta,nextId,id1,id2,...
+     * @return - служебное состояние или Optional.empty()
+     */
+    private Optional<StorageMetadata> safeMetadata(String line) {
+        try {
+            return Optional.of(StorageMetadata.fromCsv(line));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Некорректная служебная строка: " + line + ". Пропуск.");
+            return Optional.empty();
+        }
+    }
+
     /**
      * Приватный метод для загрузки задач из файла в текущий менеджер.
      * Если файл не существует или пуст — ничего не происходит.
+     * В режиме журнала после файла проигрываются записи журнала.
      */
     private void loadFromFile() {
+        restoring = true;
+        try {
+            loadSnapshot();
+            if (journal != null) {
+                journal.replay(this::replay);
+            }
+        } finally {
+            restoring = false;
+        }
+    }
+
+    /**
+     * Потоковая загрузка основного файла: записи читаются через буфер и сразу добавляются в менеджер,
+     * поэтому пиковое потребление памяти не зависит от размера файла
+     */
+    private void loadSnapshot() {
+        if (segmentDir != null && Files.isDirectory(segmentDir)) {
+            loadSegments();
+            return;
+        }
         File file = new File(filePath);
         if (!file.exists() || file.length() == 0) return;
 
+        List<StorageMetadata> metadata = new ArrayList<>(1);
         try {
-            String content = Files.readString(file.toPath());
-            String[] lines = content.split("\\R");
-
-            List<Task> tasks = Arrays.stream(lines) // Создание потока из массива строк файла
-                    .skip(1) // Пропуск первой строки (заголовок CSV)
-                    .filter(line -> !line.trim().isEmpty()) // Фильтрация пустых строк
-                    .filter(line -> line.matches("^\\d+.*")) // Фильтрация строк, которые начинаются с ID
-                    .map(this::safeFromString) // Преобразование строк (Optional.of(task)) или Optional.empty()
-                    .flatMap(Optional::stream) // Оборачивается в Stream<Task> или Stream.empty(). Зависит от Optional
-                    .toList(); // Сбор всех полученных задач в список
-            tasks.forEach(task -> { // Добавление каждой задачи в соответствующие коллекции
-                if (task instanceof Epic epic) internalAddEpic(epic);
-                else if (task instanceof Subtask subtask) internalAddSubtask(subtask);
-                else internalAddTask(task);
-            });
-
+            if (!BinaryTaskFormat.isBinary(file.toPath())
+                    && file.length() >= parallelLoadThreshold && Runtime.getRuntime().availableProcessors() > 1) {
+                loadCsvParallel(file.toPath(), metadata::add);
+            } else {
+                readFile(file.toPath(), this::restore, metadata::add);
+            }
         } catch (IOException e) {
             System.out.println("Ошибка при чтении файла: " + e.getMessage());
         }
+        metadata.forEach(this::applyMetadata); // История восстанавливается после загрузки всех задач
+        if (segmentDir != null) { // Первый запуск в режиме сегментов: перенос основного файла в сегменты
+            getAllTasks().forEach(task -> markDirty(task.getId()));
+            getAllEpics().forEach(epic -> markDirty(epic.getId()));
+            getAllSubtasks().forEach(subtask -> markDirty(subtask.getId()));
+            saveDirtySegments();
+            saveMetadata(); // Счетчик id и история из основного файла
+        }
+    }
+
+    /**
+     * Потоковое чтение файла задач в формате CSV или бинарном (формат определяется по заголовку)
+     * @param path - путь к файлу
+     * @param consumer - обработчик прочитанных задач
+     * @param metadataConsumer - обработчик служебного состояния
+     */
+    private void readFile(Path path, Consumer<Task> consumer,
+                          Consumer<StorageMetadata> metadataConsumer) throws IOException {
+        if (BinaryTaskFormat.isBinary(path)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(path), READ_BUFFER_SIZE))) {
+                BinaryTaskFormat.read(in, consumer, metadataConsumer);
+            }
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            reader.readLine(); // Пропуск первой строки (заголовок CSV)
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(StorageMetadata.CSV_PREFIX)) {
+                    safeMetadata(line).ifPresent(metadataConsumer);
+                    continue;
+                }
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) { // Строки должны начинаться с ID
+                    continue;
+                }
+                safeFromString(line).ifPresent(consumer); // Передача задачи обработчику
+            }
+        }
+    }
+
+    /**
+     * Загрузка всех сегментов. Подзадачи добавляются после эпиков из всех сегментов.
+     * Читаются только файлы вида segment-N; временные файлы *.tmp, оставшиеся от записи,
+     * прерванной до переименования, не зафиксированы и удаляются.
+     */
+    private void loadSegments() {
+        List<Subtask> loadedSubtasks = new ArrayList<>();
+        List<StorageMetadata> metadata = new ArrayList<>(1);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(segmentDir, "*.tmp")) {
+            for (Path temp : stale) {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка при удалении временных файлов сегментов: " + e.getMessage());
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(segmentDir,
+                file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())) {
+            for (Path segment : segments) {
+                readFile(segment, task -> {
+                    if (task instanceof Subtask subtask) loadedSubtasks.add(subtask);
+                    else restore(task);
+                }, metadata::add);
+            }
+            Path meta = segmentDir.resolve(METADATA_FILE);
+            if (Files.exists(meta)) {
+                readFile(meta, this::restore, metadata::add);
+            }
+            Path nextId = segmentDir.resolve(NEXT_ID_FILE);
+            if (Files.exists(nextId)) { // Файл счетчика не содержит истории и не должен ее сбрасывать
+                readFile(nextId, this::restore, counter -> restoreNextId(counter.nextId()));
+            }
+        } catch (IOException e) {
+            System.out.println("Ошибка при чтении сегментов: " + e.getMessage());
+        }
+        loadedSubtasks.forEach(this::internalAddSubtask);
+        metadata.forEach(this::applyMetadata);
+        savedNextId = getNextId(); // Загруженное состояние уже совпадает с файлами
+        savedHistoryVersion = getHistoryVersion();
+    }
+
+    /**
+     * Применение служебного состояния после загрузки задач
+     * @param metadata - следующий id и история просмотров
+     */
+    private void applyMetadata(StorageMetadata metadata) {
+        restoreNextId(metadata.nextId());
+        restoreHistory(metadata.historyIds());
+    }
+
+    private StorageMetadata metadata() {
+        return new StorageMetadata(getNextId(), getHistoryIds());
+    }
+
+    /**
+     * Запись служебного состояния (счетчик id и история) в отдельный файл каталога сегментов
+     */
+    private void saveMetadata() {
+        long historyVersion = getHistoryVersion();
+        writeSegmentMetadata(METADATA_FILE, metadata());
+        savedHistoryVersion = historyVersion;
+    }
+
+    /**
+     * Запись счетчика id после удаления задач: удаленная задача с наибольшим id больше не хранится
+     * в сегментах, поэтому счетчик сохраняется отдельно. Размер записи не зависит от истории,
+     * запись пропускается, если счетчик не менялся с прошлого сохранения.
+     * После добавления задач файл не нужен: при загрузке счетчик сдвигается за каждый прочитанный id.
+     */
+    private void saveNextId() {
+        if (getNextId() != savedNextId) {
+            writeSegmentMetadata(NEXT_ID_FILE, new StorageMetadata(getNextId(), new int[0]));
+        }
+    }
+
+    private void writeSegmentMetadata(String fileName, StorageMetadata metadata) {
+        try {
+            Files.createDirectories(segmentDir);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeRecords(out, storageFormat, List.of(), metadata);
+            writeAtomically(segmentDir.resolve(fileName), out.toByteArray());
+            savedNextId = metadata.nextId();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи сегментов", e);
+        }
+    }
+
+    private void markDirty(int id) {
+        dirtySegments.set(id / SEGMENT_SIZE);
+    }
+
+    /**
+     * Запись только сегментов, в которых есть изменения после последней записи.
+     * Пустой сегмент удаляется.
+     */
+    private void saveDirtySegments() {
+        try {
+            Files.createDirectories(segmentDir);
+            for (int segment = dirtySegments.nextSetBit(0); segment >= 0;
+                 segment = dirtySegments.nextSetBit(segment + 1)) {
+                List<Task> records = new ArrayList<>(SEGMENT_SIZE);
+                for (int id = segment * SEGMENT_SIZE; id < (segment + 1) * SEGMENT_SIZE; id++) {
+                    Task task = internalFind(id);
+                    if (task != null) {
+                        records.add(task);
+                    }
+                }
+                Path target = segmentDir.resolve("segment-" + segment);
+                if (records.isEmpty()) {
+                    Files.deleteIfExists(target);
+                } else {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    writeRecords(out, storageFormat, List.of(records), null);
+                    writeAtomically(target, out.toByteArray());
+                }
+            }
+            dirtySegments.clear();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи сегментов", e);
+        }
+    }
+
+    /**
+     * Параллельная загрузка большого CSV-файла.
+     * Файл делится на части по границам строк, части разбираются в общем ForkJoinPool,
+     * затем результаты добавляются в менеджер: сначала все эпики, потом задачи и подзадачи,
+     * чтобы подзадачи связывались с уже загруженными эпиками.
+     * @param path - путь к CSV-файлу
+     */
+    private void loadCsvParallel(Path path, Consumer<StorageMetadata> metadataConsumer) throws IOException {
+        List<ParsedChunk> chunks;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int parts = (int) Math.max(Runtime.getRuntime().availableProcessors() * 4L,
+                    (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+            List<long[]> ranges = new ArrayList<>();
+            long start = 0;
+            for (int i = 1; i <= parts && start < size; i++) {
+                long end = i == parts ? size : nextLineStart(channel, size * i / parts);
+                if (end > start) {
+                    ranges.add(new long[]{start, end});
+                    start = end;
+                }
+            }
+            chunks = ranges.parallelStream() // Разбор частей в общем ForkJoinPool с сохранением порядка
+                    .map(range -> parseChunk(channel, range[0], range[1], range[0] == 0))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        chunks.forEach(chunk -> chunk.epics().forEach(this::internalAddEpic));
+        chunks.forEach(chunk -> chunk.tasks().forEach(this::internalAddTask));
+        chunks.forEach(chunk -> chunk.subtasks().forEach(this::internalAddSubtask));
+        chunks.forEach(chunk -> chunk.metadata().forEach(metadataConsumer));
+    }
+
+    /**
+     * Поиск начала строки, следующей за позицией (граница части)
+     * @return смещение первого байта после ближайшего перевода строки
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long offset = position;
+        while (channel.read(buffer.clear(), offset) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                offset++;
+                if (buffer.get() == '\n') {
+                    return offset;
+                }
+            }
+        }
+        return offset; // Конец файла
+    }
+
+    private ParsedChunk parseChunk(FileChannel channel, long start, long end, boolean hasHeader) {
+        ParsedChunk chunk = new ParsedChunk(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        CharBuffer chars;
+        try {
+            chars = StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        boolean skip = hasHeader; // Первая строка файла - заголовок CSV
+        int lineStart = 0;
+        for (int i = 0; i <= chars.length(); i++) {
+            if (i < chars.length() && chars.charAt(i) != '\n') {
+                continue;
+            }
+            int lineEnd = i > lineStart && chars.charAt(i - 1) == '\r' ? i - 1 : i;
+            if (skip) {
+                skip = false;
+            } else if (lineEnd > lineStart && chars.charAt(lineStart) == '#') {
+                safeMetadata(chars.subSequence(lineStart, lineEnd).toString()).ifPresent(chunk.metadata()::add);
+            } else if (lineEnd > lineStart && Character.isDigit(chars.charAt(lineStart))) {
+                safeFromString(chars.subSequence(lineStart, lineEnd).toString()).ifPresent(task -> {
+                    if (task instanceof Epic epic) chunk.epics().add(epic);
+                    else if (task instanceof Subtask subtask) chunk.subtasks().add(subtask);
+                    else chunk.tasks().add(task);
+                });
+            }
+            lineStart = i + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Результат разбора одной части файла, разложенный по типам
+     */
+    private record ParsedChunk(List<Epic> epics, List<Task> tasks, List<Subtask> subtasks,
+                               List<StorageMetadata> metadata) {
+    }
+
+    /**
+     * Добавление загруженной задачи в соответствующую коллекцию с сохранением ее id
+     * @param task - задача, эпик или подзадача
+     */
+    private void restore(Task task) {
+        if (task instanceof Epic epic) internalAddEpic(epic);
+        else if (task instanceof Subtask subtask) internalAddSubtask(subtask);
+        else internalAddTask(task);
+    }
+
+    /**
+     * Применение одной записи журнала
+     * Некорректные записи пропускаются с логированием, как и строки CSV
+     * @param line - строка журнала вида OPERATION,payload
+     */
+    private void replay(String line) {
+        if (line.isBlank()) return;
+        int separator = line.indexOf(',');
+        try {
+            TaskJournal.Operation operation = TaskJournal.Operation.valueOf(
+                    separator < 0 ? line : line.substring(0, separator));
+            String payload = separator < 0 ? "" : line.substring(separator + 1);
+            switch (operation) {
+                case PUT -> safeFromString(payload).ifPresent(this::restore);
+                case DELETE -> internalDelete(Integer.parseInt(payload));
+                case META -> applyMetadata(StorageMetadata.fromCsv(StorageMetadata.CSV_PREFIX + ',' + payload));
+                case CLEAR -> {
+                    switch (TaskType.valueOf(payload)) {
+                        case TASK -> deleteAllTasks();
+                        case SUBTASK -> deleteAllSubtasks();
+                        case EPIC -> deleteAllEpics();
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) { // В том числе NumberFormatException
+            System.out.println("Некорректная запись журнала: " + line + ". Пропуск.");
+        }
     }
 
     /**
@@ -252,7 +940,8 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         boolean inQuotes = false; // Флаг для отслеживания кавычек
         boolean isEscaped = false;
 
-        for (char c : line.toCharArray()) { // Поочередная обработка каждого символа строки
+        for (int i = 0; i < line.length(); i++) { // Поочередная обработка каждого символа строки
+            char c = line.charAt(i);
             if (c == '"') {
                 if (isEscaped) {
                     currentField.append(c);
@@ -280,22 +969,102 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
 
     /**
      * Метод для сохранения текущего состояния в файл
-     * Сохраняет все задачи, эпики и подзадачи в формате CSV
+     * Сохраняет все задачи, эпики и подзадачи в выбранном формате во временный файл,
+     * который затем атомарно заменяет основной: при сбое во время записи остается прежняя версия файла
      */
     private void save() {
+        Path target = Path.of(filePath);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 OutputStream out = new BufferedOutputStream(file)) {
+                writeSnapshot(out, storageFormat);
+                out.flush();
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    file.getFD().sync();
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи в файл", e);
+        }
+    }
+
+    /**
+     * Запись всех задач, эпиков и подзадач (эпики раньше подзадач)
+     * @param out - поток вывода
+     * @param format - формат записи
+     */
+    private void writeSnapshot(OutputStream out, StorageFormat format) throws IOException {
+        writeRecords(out, format, List.of(getAllTasks(), getAllEpics(), getAllSubtasks()), metadata());
+    }
+
+    /**
+     * Запись групп задач в выбранном формате
+     * @param out - поток вывода
+     * @param format - формат записи
+     * @param groups - группы задач в порядке записи
+     * @param metadata - служебное состояние, записываемое после задач, или null
+     */
+    private void writeRecords(OutputStream out, StorageFormat format,
+                              List<List<? extends Task>> groups, StorageMetadata metadata) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            DataOutputStream data = new DataOutputStream(out);
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            BinaryTaskFormat.writeHeader(data);
+            for (List<? extends Task> group : groups) {
+                for (Task task : group) BinaryTaskFormat.writeRecord(data, record, task);
+            }
+            if (metadata != null) BinaryTaskFormat.writeMetadata(data, record, metadata);
+            data.flush();
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
         Set<Integer> writtenIds = new HashSet<>();
+        writer.write("id,type,name,status,description,start_time,duration,epic\n");
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write("id,type,name,status,description,start_time,duration,epic\n");
+        for (List<? extends Task> group : groups) {
+            writeTasks(writer, writtenIds, group, this::toString);
+        }
+        if (metadata != null) {
+            writer.write(metadata.toCsv());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
 
-            writeTasks(writer, writtenIds, getAllTasks(), this::toString);
-            writeTasks(writer, writtenIds, getAllEpics(), this::toString);
-            writeTasks(writer, writtenIds, getAllSubtasks(), this::toString);
+    private byte[] renderSnapshot() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeSnapshot(out, storageFormat);
+        } catch (IOException e) { // ByteArrayOutputStream не выбрасывает IOException
+            throw new ManagerSaveException("Ошибка при создании снимка", e);
+        }
+        return out.toByteArray();
+    }
 
-            writer.flush();
+    /**
+     * Запись снимка во временный файл и его атомарное переименование в основной файл.
+     * При сбое во время записи основной файл остается прежним.
+     * @param content - содержимое файла в выбранном формате
+     */
+    private void writeSnapshotAtomically(byte[] content) {
+        try {
+            writeAtomically(Path.of(filePath), content);
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при записи в файл", e);
+            throw new ManagerSaveException("Ошибка при записи снимка", e);
+        }
+    }
+
+    private void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            out.write(content);
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                out.getFD().sync(); // Данные должны оказаться на диске раньше, чем новое имя файла
+            }
         }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     /**
@@ -307,7 +1076,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
      * @param <T> - тип задачи
      */
     private <T extends Task> void writeTasks(
-            BufferedWriter writer,
+            Writer writer,
             Set<Integer> writtenIds,
             List<T> tasks, Function<T, String> toStringFunction) {
 
@@ -3,12 +3,12 @@ package taskmanager.core.managers;
 import taskmanager.core.model.Task;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> nodeMap = new LinkedHashMap<>(); // Хранит id задачи -> узел
+    private final Map<Integer, Node> nodeMap = new HashMap<>(); // Хранит id задачи -> узел, порядок задает сам список
     private Node head; // Первый элемент списка (изначально null)
     private Node tail; // Последний элемент списка (изначально null)
 
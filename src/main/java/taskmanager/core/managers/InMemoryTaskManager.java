@@ -4,13 +4,16 @@ import taskmanager.core.exceptions.TimeConflictException;
 import taskmanager.core.model.*;
 import taskmanager.core.util.*;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class InMemoryTaskManager implements TaskManager {
     private int idCounter;
-    private final HashMap<Integer, Task> tasks;
-    private final HashMap<Integer, Subtask> subtasks;
-    private final HashMap<Integer, Epic> epics;
+    private final IntObjectMap<Task> tasks; // Хранилища с примитивными ключами: без упаковки id и узлов HashMap
+    private final IntObjectMap<Subtask> subtasks;
+    private final IntObjectMap<Epic> epics;
     private final HistoryManager historyManager;
     private boolean isUpdatingStatus = false; // Флаг для блокировки рекурсии
     private final TreeSet<Task> prioritizedTasks = new TreeSet<>(
@@ -19,12 +22,21 @@ public class InMemoryTaskManager implements TaskManager {
                     Comparator.nullsLast(Comparator.naturalOrder()) // задачи со startTime == null идут в конец
             )
     );
+    private final TimeIntervalIndex timeIndex = new TimeIntervalIndex(); // Индекс интервалов для проверки пересечений
+    // id подзадачи -> эпик, статус и время, под которыми она учтена в агрегатах эпика.
+    // Нужен, так как обновление может прийти с тем же объектом, уже измененным снаружи
+    private final IntObjectMap<CountedSubtask> countedSubtasks = new IntObjectMap<>();
+    private final TaskStatusIndex statusIndex = new TaskStatusIndex(); // Индекс по типу и статусу для выборок
+    private volatile long version; // Версия данных: увеличивается при каждом изменении задач, подзадач или эпиков
+    private final AtomicLongArray typeVersions = new AtomicLongArray(TaskType.values().length); // Версия по типам
+    private volatile long historyVersion; // Версия истории: меняется при просмотрах и изменениях данных
+    public static final Duration SLOT_GAP = Duration.ofMinutes(1); // Зазор между автоматически размещенными задачами
 
     public InMemoryTaskManager(HistoryManager historyManager) {
         this.idCounter = 1;
-        this.tasks = new HashMap<>();
-        this.subtasks = new HashMap<>();
-        this.epics = new HashMap<>();
+        this.tasks = new IntObjectMap<>();
+        this.subtasks = new IntObjectMap<>();
+        this.epics = new IntObjectMap<>();
         this.historyManager = historyManager;
     }
 
@@ -34,34 +46,51 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values()); // Получение всех задач. Возврат копии списка, для защиты от изменений
+        return tasks.values(); // Получение всех задач. Возврат копии списка, для защиты от изменений
     }
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values()); // Получение всех подзадач. Возврат копии списка, аналог tasks
+        return subtasks.values(); // Получение всех подзадач. Возврат копии списка, аналог tasks
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values()); // Получение всех эпиков. Возврат копии списка, аналог tasks
+        return epics.values(); // Получение всех эпиков. Возврат копии списка, аналог tasks
     }
 
     @Override
     public void deleteAllTasks() {
+        tasks.forEachValue(this::removeFromSchedule);
         tasks.clear();
+        statusIndex.clear(TaskType.TASK);
+        modified(TaskType.TASK);
     }
 
     @Override
     public void deleteAllSubtasks() {
+        subtasks.forEachValue(this::removeFromSchedule);
         subtasks.clear(); // Очистка подзадач
-        epics.values().forEach(epic -> epic.setSubtaskIds(new ArrayList<>())); // Очистка списка подзадач у эпиков
+        countedSubtasks.clear();
+        statusIndex.clear(TaskType.SUBTASK);
+        epics.forEachValue(epic -> {
+            epic.clearSubtasks(); // Очистка списка подзадач у эпиков
+            epic.resetSubtaskAggregates();
+            epic.setStatus(Status.NEW); // Эпик без подзадач имеет статус NEW
+            statusIndex.put(TaskType.EPIC, epic);
+        });
+        modified(TaskType.SUBTASK, TaskType.EPIC);
     }
 
     @Override
     public void deleteAllEpics() {
+        subtasks.forEachValue(this::removeFromSchedule);
         epics.clear();
         subtasks.clear();
+        countedSubtasks.clear();
+        statusIndex.clear(TaskType.EPIC);
+        statusIndex.clear(TaskType.SUBTASK);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
     }
 
     @Override
@@ -69,6 +98,7 @@ public class InMemoryTaskManager implements TaskManager {
         Task task = tasks.get(id);
         if (task != null) {
             historyManager.add(task);
+            historyVersion++;
         }
         return task;
     }
@@ -78,6 +108,7 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask subtask = subtasks.get(id);
         if (subtask != null) {
             historyManager.add(subtask);
+            historyVersion++;
         }
         return subtask;
     }
@@ -87,13 +118,14 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(id);
         if (epic != null) {
             historyManager.add(epic);
+            historyVersion++;
         }
         return epic;
     }
 
     @Override
     public List<Task> getHistory() {
-        return new ArrayList<>(historyManager.getHistory()); // Делегирует вызов истории, возвращаем копию списка
+        return historyManager.getHistory(); // Новый или неизменяемый список, копия не нужна
     }
 
     @Override
@@ -101,6 +133,210 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(prioritizedTasks); // Создание копии для безопасности
     }
 
+    /**
+     * Задачи расписания, пересекающиеся с полуинтервалом [from, to), в порядке начала за O(log n + k).
+     * Задачи, начавшиеся внутри диапазона, берутся навигацией по TreeSet; из начавшихся раньше from
+     * в диапазон может заходить только последняя, так как задачи расписания не пересекаются между собой.
+     * @param from начало диапазона (включительно) или null без ограничения
+     * @param to окончание диапазона (не включительно) или null без ограничения
+     * @return новый список задач и подзадач
+     */
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        NavigableSet<Task> range = prioritizedTasks;
+        if (from != null) {
+            Task before = prioritizedTasks.lower(timeProbe(from));
+            if (before != null && before.getEndTime() != null && before.getEndTime().isAfter(from)) {
+                result.add(before); // Задача началась раньше диапазона, но еще не закончилась
+            }
+            range = range.tailSet(timeProbe(from), true);
+        }
+        if (to != null) {
+            range = range.headSet(timeProbe(to), false);
+        }
+        result.addAll(range);
+        return result;
+    }
+
+    /**
+     * Поиск самого раннего свободного промежутка заданной длины в окне [from, to]
+     * @param duration продолжительность задачи
+     * @param from начало окна
+     * @param to окончание окна
+     * @return время начала свободного промежутка или null, если в окне места нет
+     */
+    @Override
+    public LocalDateTime findFreeSlot(Duration duration, LocalDateTime from, LocalDateTime to) {
+        return planSlots(List.of(duration), from, to).get(0);
+    }
+
+    /**
+     * Автоматическое размещение задач и подзадач без startTime в окне [from, to].
+     * Задачи размещаются в порядке списка в самые ранние подходящие промежутки за один проход по расписанию,
+     * к промежуткам, пропущенным предыдущими задачами, проход не возвращается.
+     * Новые задачи добавляются, уже сохраненные в менеджере - обновляются, оба пакета одним вызовом.
+     * @param batch задачи и подзадачи с заданной продолжительностью
+     * @param from начало окна
+     * @param to окончание окна
+     * @return задачи, для которых не нашлось места (остаются без startTime)
+     */
+    @Override
+    public List<Task> autoSchedule(List<? extends Task> batch, LocalDateTime from, LocalDateTime to) {
+        List<Duration> durations = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            if (task instanceof Epic) {
+                throw new IllegalArgumentException("Время эпика вычисляется по подзадачам");
+            }
+            if (task.getStartTime() != null) {
+                throw new IllegalArgumentException("Задача " + task.getTitle() + " уже имеет время начала");
+            }
+            durations.add(task.getDuration());
+        }
+        List<LocalDateTime> slots = planSlots(durations, from, to);
+        List<Task> unplaced = new ArrayList<>();
+        List<Task> added = new ArrayList<>();
+        List<Task> updated = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            if (slots.get(i) == null) {
+                unplaced.add(task);
+                continue;
+            }
+            task.setStartTime(slots.get(i));
+            boolean stored = task instanceof Subtask
+                    ? subtasks.containsKey(task.getId()) : tasks.containsKey(task.getId());
+            (stored ? updated : added).add(task);
+        }
+        updateAll(updated);
+        addAll(added);
+        return unplaced;
+    }
+
+    /**
+     * Планирование промежутков одним проходом по расписанию.
+     * Задачи расписания не пересекаются, поэтому их окончания идут по возрастанию вместе с началами,
+     * и курсор свободного времени только сдвигается вперед: O(log n + k + m).
+     * Касание границ считается пересечением, поэтому между задачами остается зазор {@link #SLOT_GAP}.
+     * @param durations продолжительности размещаемых задач (null - нулевая)
+     * @param from начало окна
+     * @param to окончание окна
+     * @return время начала для каждой продолжительности или null, если места не нашлось
+     */
+    private List<LocalDateTime> planSlots(List<Duration> durations, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Окно планирования задано некорректно");
+        }
+        Task before = prioritizedTasks.lower(timeProbe(from)); // Может еще выполняться в момент from
+        Iterator<Task> scheduled = prioritizedTasks.tailSet(before != null ? before : timeProbe(from), true)
+                .iterator();
+        Task next = scheduled.hasNext() ? scheduled.next() : null;
+        LocalDateTime cursor = from; // Самое раннее время, свободное от уже размещенных задач
+        List<LocalDateTime> slots = new ArrayList<>(durations.size());
+        for (Duration value : durations) {
+            Duration duration = value != null ? value : Duration.ZERO;
+            if (duration.isNegative()) {
+                throw new IllegalArgumentException("Продолжительность не может быть отрицательной");
+            }
+            while (next != null) {
+                LocalDateTime nextEnd = next.getEndTime() != null ? next.getEndTime() : next.getStartTime();
+                if (nextEnd.isBefore(cursor)) { // Задача закончилась до курсора
+                    next = scheduled.hasNext() ? scheduled.next() : null;
+                } else if (!cursor.plus(duration).isBefore(next.getStartTime())) { // Не помещается перед задачей
+                    cursor = nextEnd.plus(SLOT_GAP);
+                    next = scheduled.hasNext() ? scheduled.next() : null;
+                } else {
+                    break;
+                }
+            }
+            if (cursor.plus(duration).isAfter(to)) {
+                slots.add(null);
+                continue;
+            }
+            slots.add(cursor);
+            cursor = cursor.plus(duration).plus(SLOT_GAP);
+        }
+        return slots;
+    }
+
+    /**
+     * Задача-образец для навигации по prioritizedTasks (сравнение идет только по startTime)
+     */
+    private static Task timeProbe(LocalDateTime time) {
+        return new Task("", "", Status.NEW, null, time);
+    }
+
+    /**
+     * Выборка по индексу типа и статуса: обходятся только подходящие id, а не все коллекции
+     * @param type тип задач
+     * @param status статус или null для всех статусов
+     * @return новый список найденных задач по возрастанию id
+     */
+    @Override
+    public List<Task> findTasks(TaskType type, Status status) {
+        int[] ids = statusIndex.find(type, status);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = switch (type) {
+                case TASK -> tasks.get(id);
+                case SUBTASK -> subtasks.get(id);
+                case EPIC -> epics.get(id);
+            };
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Страница задач одного типа по возрастанию id после курсора за O(log n + limit), без копии всей коллекции
+     * @param type тип задач
+     * @param status статус или null для всех статусов
+     * @param afterId курсор: id последнего элемента предыдущей страницы (0 - с начала)
+     * @param limit максимальный размер страницы
+     * @return новый список задач
+     */
+    @Override
+    public List<Task> getPage(TaskType type, Status status, int afterId, int limit) {
+        int[] ids = statusIndex.page(type, status, afterId, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(switch (type) {
+                case TASK -> tasks.get(id);
+                case SUBTASK -> subtasks.get(id);
+                case EPIC -> epics.get(id);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Страница расписания в порядке (startTime, id) после курсора за O(log n + limit).
+     * Задачи расписания не пересекаются, поэтому время начала у них не совпадает,
+     * и id курсора различает задачи только при равном startTime.
+     * @param afterStart время начала последней задачи предыдущей страницы или null - с начала
+     * @param afterId id последней задачи предыдущей страницы
+     * @param limit максимальный размер страницы
+     * @return новый список задач и подзадач
+     */
+    @Override
+    public List<Task> getPrioritizedPage(LocalDateTime afterStart, int afterId, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, prioritizedTasks.size()));
+        NavigableSet<Task> range = prioritizedTasks;
+        if (afterStart != null) {
+            Task same = prioritizedTasks.ceiling(timeProbe(afterStart));
+            if (same != null && same.getStartTime().equals(afterStart) && same.getId() > afterId) {
+                result.add(same);
+            }
+            range = prioritizedTasks.tailSet(timeProbe(afterStart), false);
+        }
+        for (Iterator<Task> it = range.iterator(); it.hasNext() && result.size() < limit; ) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
     @Override
     public void addTask(Task task) {
         if (hasTimeOverlap(task)) { // Добавление проверки по пересечению задач
@@ -108,9 +344,9 @@ public class InMemoryTaskManager implements TaskManager {
         }
         task.setId(generateId()); // Автоматическая установка уникального идентификатора
         tasks.put(task.getId(), task); // Добавление задачи в мапу
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task); // Добавление задачи в приоритезированный список
-        }
+        statusIndex.put(TaskType.TASK, task);
+        addToSchedule(task); // Добавление задачи в приоритезированный список и индекс интервалов
+        modified(TaskType.TASK);
     }
 
     @Override
@@ -123,20 +359,23 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Подзадача не может быть эпиком для себя");
         }
         subtasks.put(subtask.getId(), subtask); // Добавление подзадачи в мапу
+        statusIndex.put(TaskType.SUBTASK, subtask);
         Epic epic = epics.get(subtask.getEpicId()); // Получение эпика по идентификатору
         if (epic != null) { // Если эпик существует
             epic.addSubtask(subtask.getId()); // Добавление подзадачи в список подзадач у эпика
+            countSubtask(subtask);
             updateEpicStatus(subtask.getEpicId()); // Обновление статуса эпика
         }
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.add(subtask);
-        }
+        addToSchedule(subtask);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
     }
 
     @Override
     public void addEpic(Epic epic) {
         epic.setId(generateId());// Автоматическая установка уникального идентификатора
         epics.put(epic.getId(), epic); // Добавление эпика в мапу
+        statusIndex.put(TaskType.EPIC, epic);
+        modified(TaskType.EPIC);
     }
 
     @Override
@@ -148,19 +387,9 @@ public class InMemoryTaskManager implements TaskManager {
             if (epic == null) {
                 return;
             }
-            List<Subtask> actualSubtasks = getAllSubtasksByEpicId(epicId); // Получение списка актуальных подзадач
-            if (actualSubtasks.isEmpty()) { // Если список пустой, то статус = NEW
-                epic.setStatus(Status.NEW);
-                return;
-            }
-            boolean isAllDone = areAllSubtasks(actualSubtasks, Status.DONE); // Проверка, все ли подзадачи DONE
-            boolean isAllNew = areAllSubtasks(actualSubtasks, Status.NEW); // Проверка, все ли подзадачи NEW
-
-            epic.setStatus(
-                    isAllDone ? Status.DONE :
-                            isAllNew ? Status.NEW :
-                                    Status.IN_PROGRESS
-            );
+            epic.setStatus(epic.calculateStatus()); // Статус по счетчикам подзадач, без обхода списка
+            statusIndex.put(TaskType.EPIC, epic);
+            modified(TaskType.EPIC);
         } finally {
             isUpdatingStatus = false;
         }
@@ -171,11 +400,11 @@ public class InMemoryTaskManager implements TaskManager {
         if (hasTimeOverlap(task)) {
             throw new TimeConflictException("Задача пересекается по времени с существующей.");
         }
-        prioritizedTasks.remove(task);
+        removeFromSchedule(tasks.get(task.getId())); // Удаление прежней версии задачи
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
+        statusIndex.put(TaskType.TASK, task);
+        addToSchedule(task);
+        modified(TaskType.TASK);
     }
 
     @Override
@@ -187,26 +416,40 @@ public class InMemoryTaskManager implements TaskManager {
             }
         }
         subtasks.put(subtask.getId(), subtask);
+        statusIndex.put(TaskType.SUBTASK, subtask);
+        CountedSubtask counted = uncountSubtask(subtask.getId());
+        countSubtask(subtask);
+        if (counted != null && counted.epicId() != subtask.getEpicId()) {
+            updateEpicStatus(counted.epicId());
+        }
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
             updateEpicStatus(epic.getId());
         }
-        prioritizedTasks.remove(subtask);
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.add(subtask);
-        }
+        removeFromSchedule(old);
+        addToSchedule(subtask);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        epics.put(epic.getId(), epic);
+        Epic old = epics.put(epic.getId(), epic);
+        if (old != null && old != epic) {
+            epic.copySubtaskAggregates(old); // Счетчики и время не передаются в запросе и переносятся из прежней версии
+        }
+        statusIndex.put(TaskType.EPIC, epic);
+        modified(TaskType.EPIC);
     }
 
     @Override
     public void deleteTaskById(int id) {
-        tasks.remove(id); // Удаление задачи из мапы
+        Task removed = tasks.remove(id);
+        removeFromSchedule(removed); // Удаление задачи из мапы и приоритезированного списка
+        if (removed != null) {
+            statusIndex.remove(id);
+        }
         historyManager.remove(id); // Удаление задачи из истории
-        prioritizedTasks.remove(tasks.get(id)); // Удаление задачи из приоритезированного списка
+        modified(TaskType.TASK);
     }
 
     @Override
@@ -216,39 +459,307 @@ public class InMemoryTaskManager implements TaskManager {
             int epicId = subtask.getEpicId(); // Получение идентификатора эпика
             Epic epic = epics.get(epicId); // Получение эпика по идентификатору
             if (epic != null) { // Если эпик существует
-                if (epic.getSubtaskIds().contains(id)) { // Если подзадача принадлежит эпику
-                    epic.getSubtaskIds().remove(Integer.valueOf(id)); // Удаление подзадачи по значению, а не по индексу
-                }
-                updateEpicStatus(epic.getId()); // Обновление статуса эпика
+                epic.removeSubtask(id); // Удаление подзадачи из множества эпика за O(1)
+            }
+            CountedSubtask counted = uncountSubtask(id);
+            if (counted != null && counted.epicId() != epicId) {
+                updateEpicStatus(counted.epicId());
             }
+            updateEpicStatus(epicId); // Обновление статуса эпика
+            statusIndex.remove(id);
         }
         subtasks.remove(id); // Удаление подзадачи из мапы
         historyManager.remove(id); // Удаление подзадачи из истории
-        prioritizedTasks.remove(subtask); // Удаление подзадачи из приоритезированного списка
+        removeFromSchedule(subtask); // Удаление подзадачи из приоритезированного списка
+        modified(TaskType.SUBTASK, TaskType.EPIC);
     }
 
     @Override
     public void deleteEpicById(int id) {
-        Optional.ofNullable(epics.get(id)) // Если эпик существует
-                .map(Epic::getSubtaskIds) // Получение списка id подзадач
-                .ifPresent(ids -> ids.forEach(this::deleteSubtaskById)); //  Удаление подзадач по этому ID
-        epics.remove(id); // Удаление эпика из мапы
+        Epic epic = epics.get(id);
+        if (epic != null) { // Если эпик существует
+            for (int subtaskId : epic.getSubtaskIdArray()) { // Удаление подзадач по копии id
+                deleteSubtaskById(subtaskId);
+            }
+        }
+        if (epics.remove(id) != null) { // Удаление эпика из мапы
+            statusIndex.remove(id);
+        }
         historyManager.remove(id); // Удаление эпика из истории
+        modified(TaskType.SUBTASK, TaskType.EPIC);
+    }
+
+    /**
+     * Пакетное добавление задач, подзадач и эпиков в порядке списка.
+     * Пересечения всего пакета проверяются до изменений: пакет сортируется по времени начала и проверяется
+     * на пересечения внутри себя, затем каждая задача проверяется по индексу интервалов.
+     * При ошибке ни одна задача пакета не добавляется. Статус каждого затронутого эпика пересчитывается один раз.
+     * @param batch задачи, подзадачи и эпики
+     */
+    @Override
+    public void addAll(List<? extends Task> batch) {
+        int nextId = idCounter;
+        for (Task task : batch) { // Идентификаторы выдаются по порядку, поэтому проверяются заранее
+            if (task instanceof Subtask subtask && subtask.getEpicId() == nextId) {
+                throw new IllegalArgumentException("Подзадача не может быть эпиком для себя");
+            }
+            nextId++;
+        }
+        checkBatchOverlaps(batch, new IntSet());
+        IntSet affectedEpics = new IntSet();
+        for (Task task : batch) {
+            task.setId(generateId());
+            if (task instanceof Epic epic) {
+                epics.put(epic.getId(), epic);
+                statusIndex.put(TaskType.EPIC, epic);
+            } else {
+                store(task, affectedEpics);
+            }
+        }
+        refreshEpics(affectedEpics);
+        modified(TaskType.TASK);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
+    }
+
+    /**
+     * Пакетное обновление задач, подзадач и эпиков.
+     * Прежние версии обновляемых задач не считаются пересечениями, в остальном проверка как в {@link #addAll}.
+     * @param batch задачи, подзадачи и эпики с уже выданными id
+     */
+    @Override
+    public void updateAll(List<? extends Task> batch) {
+        IntSet updatedIds = new IntSet();
+        for (Task task : batch) {
+            if (!(task instanceof Epic)) {
+                updatedIds.add(task.getId());
+            }
+        }
+        checkBatchOverlaps(batch, updatedIds);
+        IntSet affectedEpics = new IntSet();
+        for (Task task : batch) {
+            if (task instanceof Epic epic) {
+                Epic old = epics.put(epic.getId(), epic);
+                if (old != null && old != epic) {
+                    epic.copySubtaskAggregates(old);
+                }
+                statusIndex.put(TaskType.EPIC, epic);
+            } else {
+                store(task, affectedEpics);
+            }
+        }
+        refreshEpics(affectedEpics);
+        modified(TaskType.TASK);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
+    }
+
+    /**
+     * Пакетное удаление задач, подзадач и эпиков (вместе с их подзадачами) по id.
+     * Отсутствующие id пропускаются. Статус каждого затронутого эпика пересчитывается один раз.
+     * @param ids идентификаторы удаляемых задач
+     */
+    @Override
+    public void deleteAll(List<Integer> ids) {
+        IntSet affectedEpics = new IntSet();
+        for (int id : ids) {
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                for (int subtaskId : epic.getSubtaskIdArray()) {
+                    discardSubtask(subtaskId, affectedEpics);
+                }
+                statusIndex.remove(id);
+            } else if (subtasks.containsKey(id)) {
+                discardSubtask(id, affectedEpics);
+            } else {
+                removeFromSchedule(tasks.remove(id));
+                statusIndex.remove(id);
+            }
+            historyManager.remove(id);
+        }
+        refreshEpics(affectedEpics);
+        modified(TaskType.TASK);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
+    }
+
+    /**
+     * Проверка пакета на пересечения по времени за O(m log m + m log n).
+     * После сортировки по началу задача пересекается с предыдущими задачами пакета,
+     * только если она начинается не позже максимального окончания среди них.
+     * @param batch проверяемые задачи (эпики и задачи без времени пропускаются)
+     * @param ignoredIds id задач, прежние версии которых не учитываются в индексе
+     */
+    private void checkBatchOverlaps(List<? extends Task> batch, IntSet ignoredIds) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : batch) {
+            if (!(task instanceof Epic) && task.getStartTime() != null) {
+                timed.add(task);
+            }
+        }
+        timed.sort(Comparator.comparing(Task::getStartTime));
+        LocalDateTime maxEnd = null;
+        for (Task task : timed) {
+            if (maxEnd != null && !maxEnd.isBefore(task.getStartTime())) {
+                throw new TimeConflictException("Задачи пакета пересекаются по времени: " + task.getTitle());
+            }
+            if (timeIndex.overlaps(task, ignoredIds)) {
+                throw new TimeConflictException("Задача пакета пересекается по времени с существующей: "
+                        + task.getTitle());
+            }
+            LocalDateTime end = task.getEndTime() != null ? task.getEndTime() : task.getStartTime();
+            if (maxEnd == null || end.isAfter(maxEnd)) {
+                maxEnd = end;
+            }
+        }
+    }
+
+    /**
+     * Сохранение задачи или подзадачи с уже выданным id без проверки пересечений и пересчета статуса эпика
+     * @param task задача или подзадача
+     * @param affectedEpics эпики, статус которых нужно пересчитать
+     */
+    private void store(Task task, IntSet affectedEpics) {
+        if (!(task instanceof Subtask subtask)) {
+            removeFromSchedule(tasks.put(task.getId(), task));
+            statusIndex.put(TaskType.TASK, task);
+            addToSchedule(task);
+            return;
+        }
+        removeFromSchedule(subtasks.put(subtask.getId(), subtask));
+        statusIndex.put(TaskType.SUBTASK, subtask);
+        CountedSubtask counted = uncountSubtask(subtask.getId());
+        if (counted != null) {
+            affectedEpics.add(counted.epicId());
+            Epic oldEpic = epics.get(counted.epicId());
+            if (oldEpic != null && counted.epicId() != subtask.getEpicId()) { // Подзадача перенесена в другой эпик
+                oldEpic.removeSubtask(subtask.getId());
+            }
+        }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.addSubtask(subtask.getId());
+            countSubtask(subtask);
+            affectedEpics.add(epic.getId());
+        }
+        addToSchedule(subtask);
+    }
+
+    /**
+     * Удаление подзадачи без пересчета статуса эпика
+     * @param id id подзадачи
+     * @param affectedEpics эпики, статус которых нужно пересчитать
+     */
+    private void discardSubtask(int id, IntSet affectedEpics) {
+        Subtask subtask = subtasks.remove(id);
+        if (subtask == null) {
+            return;
+        }
+        CountedSubtask counted = uncountSubtask(id);
+        if (counted != null) {
+            affectedEpics.add(counted.epicId());
+        }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.removeSubtask(id);
+            affectedEpics.add(epic.getId());
+        }
+        statusIndex.remove(id);
+        historyManager.remove(id);
+        removeFromSchedule(subtask);
+    }
+
+    private void refreshEpics(IntSet epicIds) {
+        for (int epicId : epicIds.toArray()) {
+            updateEpicStatus(epicId); // Удаленные эпики пропускаются
+        }
     }
 
     @Override
     public List<Subtask> getAllSubtasksByEpicId(int epicId) { // Метод для получения всех подзадач по id эпика
-        return Optional.ofNullable(epics.get(epicId)) // Если эпик существует
-                .map(Epic::getSubtaskIds) // Получение списка id подзадач
-                .stream() // Преобразование в поток, чтобы можно было применять методы map и filter
-                .flatMap(List::stream) // Преобразование в поток, для каждого id подзадачи получение подзадачи
-                .map(subtasks::get) // Получение подзадачи по id
-                .filter(Objects::nonNull) // Фильтрация null значений
-                .toList(); // Преобразование в список
+        Epic epic = epics.get(epicId);
+        if (epic == null) { // Если эпик не существует
+            return List.of();
+        }
+        List<Subtask> result = new ArrayList<>();
+        for (int subtaskId : epic.getSubtaskIdArray()) {
+            Subtask subtask = subtasks.get(subtaskId); // Получение подзадачи по id
+            if (subtask != null) { // Пропуск id без подзадачи
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Версия данных менеджера: растет при каждом изменении задач, подзадач или эпиков
+     * @return текущая версия
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Версия коллекции: значение общей версии при последнем изменении задач этого типа.
+     * Изменение подзадачи меняет и версию эпиков, так как статус и время эпика вычисляются по подзадачам.
+     * @param type тип задач
+     * @return версия коллекции
+     */
+    @Override
+    public long getVersion(TaskType type) {
+        return typeVersions.get(type.ordinal());
+    }
+
+    /**
+     * Версия одной задачи, подзадачи или эпика: меняется при каждом изменении именно этой задачи
+     * (для эпика - и при изменении его подзадач) и не повторяется после удаления и повторного добавления
+     * @param id идентификатор задачи
+     * @return версия задачи или 0, если задачи нет
+     */
+    @Override
+    public long getEntityVersion(int id) {
+        return statusIndex.version(id);
     }
 
     /**
-     * Проверка пересечения времени (линейная сложность O(n))
+     * Номер последнего изменения отдельных задач: растет при каждом добавлении, изменении и удалении
+     * задачи, подзадачи или эпика (включая пересчет эпика). Используется снимками {@link ConcurrentTaskManager}
+     * @return номер последнего изменения
+     */
+    long getChangeStamp() {
+        return statusIndex.stamp();
+    }
+
+    /**
+     * id задач, измененных после указанного номера изменения, - для обновления копий коллекций по разнице
+     * @param afterStamp номер, полученный ранее из {@link #getChangeStamp()}
+     * @return id в порядке изменений (могут повторяться) или null, если разница уже не хранится
+     */
+    int[] getChangedIds(long afterStamp) {
+        return statusIndex.changedSince(afterStamp);
+    }
+
+    /**
+     * Версия истории просмотров: растет при каждом просмотре и изменении данных
+     * @return текущая версия истории
+     */
+    @Override
+    public long getHistoryVersion() {
+        return historyVersion;
+    }
+
+    private void modified(TaskType type) {
+        long next = version + 1; // Изменения выполняются в одном потоке или под блокировкой записи
+        typeVersions.set(type.ordinal(), next);
+        historyVersion++;
+        version = next; // Запись volatile публикуется последней
+    }
+
+    private void modified(TaskType type, TaskType related) {
+        typeVersions.set(related.ordinal(), version + 1);
+        modified(type);
+    }
+
+    /**
+     * Проверка пересечения времени через индекс интервалов (логарифмическая сложность O(log n))
      * @param newTask - новая задача
      * @return - true, если пересечение есть, иначе false
      */
@@ -257,45 +768,210 @@ public class InMemoryTaskManager implements TaskManager {
         if (newTask.getStartTime() == null) {
             return false;
         }
-        return prioritizedTasks.stream()
-                .anyMatch(existingTask -> existingTask.isOverlapping(newTask));
+        return timeIndex.overlaps(newTask);
+    }
+
+    /**
+     * Добавление задачи с заданным временем в приоритезированный список и индекс интервалов
+     * @param task задача или подзадача
+     */
+    private void addToSchedule(Task task) {
+        if (task.getStartTime() != null) {
+            prioritizedTasks.add(task);
+            timeIndex.add(task);
+        }
+    }
+
+    /**
+     * Удаление задачи из приоритезированного списка и индекса интервалов
+     * @param task задача или подзадача (null игнорируется)
+     */
+    private void removeFromSchedule(Task task) {
+        if (task != null) {
+            prioritizedTasks.remove(task);
+            timeIndex.remove(task.getId());
+        }
     }
 
     private int generateId() { // Так как это внутренний счетчик класса, то метод должен быть приватный
         return idCounter++; // Создание счетчика идентификаторов
     }
 
-    private boolean areAllSubtasks(List<Subtask> subtasks, Status status) {
-        return subtasks.stream().allMatch(task -> task.getStatus() == status);
+    /**
+     * Учет статуса и времени подзадачи в агрегатах ее эпика
+     * @param subtask подзадача; если эпика нет, подзадача не учитывается
+     */
+    private void countSubtask(Subtask subtask) {
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null) {
+            return;
+        }
+        CountedSubtask counted = new CountedSubtask(epic.getId(), subtask.getStatus(),
+                subtask.getStartTime(), subtask.getEndTime());
+        epic.countSubtaskStatus(counted.status(), 1);
+        epic.addSubtaskTime(counted.start(), counted.end());
+        countedSubtasks.put(subtask.getId(), counted);
+    }
+
+    /**
+     * Снятие ранее учтенных статуса и времени подзадачи с агрегатов эпика
+     * @param subtaskId id подзадачи
+     * @return эпик, статус и время, под которыми подзадача была учтена, или null
+     */
+    private CountedSubtask uncountSubtask(int subtaskId) {
+        CountedSubtask counted = countedSubtasks.remove(subtaskId);
+        if (counted != null) {
+            Epic epic = epics.get(counted.epicId());
+            if (epic != null) {
+                epic.countSubtaskStatus(counted.status(), -1);
+                epic.removeSubtaskTime(counted.start(), counted.end());
+            }
+        }
+        return counted;
     }
 
     /**
      * Добавление задач при загрузке из файла
      * Данные уже были добавлены при вызове addTask или addSubtask
      * Дополнительная проверка в этом случае избыточна
+     * Идентификатор задачи сохраняется, задача с тем же id заменяется
      * @param task Задача для добавления
      */
     protected void internalAddTask(Task task) {
-        task.setId(generateId());
-        tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
+        reserveId(task.getId());
+        removeFromSchedule(tasks.put(task.getId(), task)); // Удаление прежней версии задачи, если она была
+        statusIndex.put(TaskType.TASK, task);
+        addToSchedule(task);
+        modified(TaskType.TASK);
     }
 
     protected void internalAddSubtask(Subtask subtask) {
-        subtask.setId(generateId());
-        subtasks.put(subtask.getId(), subtask);
+        reserveId(subtask.getId());
+        Subtask old = subtasks.put(subtask.getId(), subtask);
+        statusIndex.put(TaskType.SUBTASK, subtask);
+        CountedSubtask counted = uncountSubtask(subtask.getId());
+        if (old != null) {
+            removeFromSchedule(old);
+            Epic oldEpic = epics.get(old.getEpicId());
+            if (oldEpic != null && old.getEpicId() != subtask.getEpicId()) { // Подзадача перенесена в другой эпик
+                oldEpic.removeSubtask(old.getId());
+                updateEpicStatus(oldEpic.getId());
+            }
+        }
+        if (counted != null && counted.epicId() != subtask.getEpicId()) {
+            updateEpicStatus(counted.epicId());
+        }
 
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
             epic.addSubtask(subtask.getId());
+            countSubtask(subtask);
             updateEpicStatus(subtask.getEpicId());
         }
+        addToSchedule(subtask);
+        modified(TaskType.SUBTASK, TaskType.EPIC);
     }
 
     protected void internalAddEpic(Epic epic) {
-        epic.setId(generateId());
-        epics.put(epic.getId(), epic);
+        reserveId(epic.getId());
+        Epic old = epics.put(epic.getId(), epic);
+        statusIndex.put(TaskType.EPIC, epic);
+        if (old != null) { // Список подзадач не хранится в файле, поэтому переносится из прежней версии эпика
+            epic.setSubtaskIds(old.getSubtaskIds());
+            if (old != epic) {
+                epic.copySubtaskAggregates(old);
+            }
+            updateEpicStatus(epic.getId());
+        }
+        modified(TaskType.EPIC);
+    }
+
+    /**
+     * Удаление задачи любого типа по id при восстановлении из файла
+     * @param id идентификатор задачи, эпика или подзадачи
+     */
+    protected void internalDelete(int id) {
+        if (tasks.containsKey(id)) {
+            deleteTaskById(id);
+        } else if (subtasks.containsKey(id)) {
+            deleteSubtaskById(id);
+        } else if (epics.containsKey(id)) {
+            deleteEpicById(id);
+        }
+    }
+
+    /**
+     * Поиск задачи любого типа по id без записи в историю просмотров
+     * @param id идентификатор задачи, эпика или подзадачи
+     * @return найденная задача или null
+     */
+    protected Task internalFind(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            return task;
+        }
+        Subtask subtask = subtasks.get(id);
+        return subtask != null ? subtask : epics.get(id);
+    }
+
+    /**
+     * Следующий свободный идентификатор (для сохранения в файл)
+     * @return значение счетчика идентификаторов
+     */
+    protected int getNextId() {
+        return idCounter;
+    }
+
+    /**
+     * Восстановление счетчика идентификаторов из файла.
+     * Счетчик не уменьшается, поэтому id удаленных задач не выдаются повторно после перезапуска.
+     * @param nextId сохраненное значение счетчика
+     */
+    protected void restoreNextId(int nextId) {
+        if (nextId > idCounter) {
+            idCounter = nextId;
+        }
+    }
+
+    /**
+     * Восстановление истории просмотров по сохраненному порядку id за O(n), без записи через get-методы.
+     * Идентификаторы, которых уже нет среди задач, пропускаются.
+     * @param ids id задач от самого старого просмотра к последнему
+     */
+    protected void restoreHistory(int[] ids) {
+        for (Task viewed : historyManager.getHistory()) {
+            historyManager.remove(viewed.getId());
+        }
+        for (int id : ids) {
+            Task task = internalFind(id);
+            if (task != null) {
+                historyManager.add(task);
+            }
+        }
+        historyVersion++;
+    }
+
+    /**
+     * Идентификаторы истории просмотров в порядке просмотра
+     * @return массив id от самого старого просмотра к последнему
+     */
+    protected int[] getHistoryIds() {
+        return historyManager.getHistory().stream().mapToInt(Task::getId).toArray();
+    }
+
+    /**
+     * Сдвиг счетчика идентификаторов за уже занятый id, чтобы новые задачи не получили его повторно
+     * @param id занятый идентификатор
+     */
+    private void reserveId(int id) {
+        if (id >= idCounter) {
+            idCounter = id + 1;
+        }
+    }
+
+    /**
+     * Эпик, статус и время, под которыми подзадача учтена в агрегатах эпика
+     */
+    private record CountedSubtask(int epicId, Status status, LocalDateTime start, LocalDateTime end) {
     }
 }
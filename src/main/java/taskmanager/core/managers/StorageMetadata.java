@@ -0,0 +1,42 @@
+package taskmanager.core.managers;
+
+/**
+ * Служебное состояние менеджера, которое хранится рядом с задачами:
+ * следующий свободный идентификатор и порядок истории просмотров.
+ * @param nextId значение счетчика идентификаторов
+ * @param historyIds id просмотренных задач от самого старого просмотра к последнему
+ */
+public record StorageMetadata(int nextId, int[] historyIds) {
+    public static final String CSV_PREFIX = "#meta"; // Начало служебной строки CSV
+
+    /**
+     * Представление в виде строки CSV: #meta,nextId,id1,id2,...
+     * @return служебная строка без перевода строки
+     */
+    public String toCsv() {
+        StringBuilder line = new StringBuilder(CSV_PREFIX.length() + 12 + historyIds.length * 6);
+        line.append(CSV_PREFIX).append(',').append(nextId);
+        for (int id : historyIds) {
+            line.append(',').append(id);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Разбор служебной строки CSV
+     * @param line строка вида #meta,nextId,id1,id2,...
+     * @return служебное состояние
+     * @throws IllegalArgumentException если строка некорректна
+     */
+    public static StorageMetadata fromCsv(String line) {
+        String[] fields = line.split(",");
+        if (fields.length < 2 || !fields[0].equals(CSV_PREFIX)) {
+            throw new IllegalArgumentException("Некорректная служебная строка " + line);
+        }
+        int[] history = new int[fields.length - 2];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = Integer.parseInt(fields[i + 2].trim());
+        }
+        return new StorageMetadata(Integer.parseInt(fields[1].trim()), history);
+    }
+}
@@ -0,0 +1,622 @@
+package taskmanager.core.managers;
+
+import taskmanager.core.exceptions.ManagerSaveException;
+import taskmanager.core.util.FsyncPolicy;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений (write-ahead log) для {@link FileBackedTaskManager}.
+ * Каждое изменение дописывается в конец файла одной строкой вида {@code OPERATION,payload},
+ * поэтому стоимость записи зависит только от размера изменения, а не от размера всей доски.
+ * <p>
+ * Перед созданием снимка активный файл журнала закрывается и переименовывается в сегмент
+ * {@code <journal>.<номер>}. После записи снимка покрытые им сегменты удаляются.
+ * <p>
+ * В режиме группового коммита записи ставятся в очередь, а единственный поток записи
+ * собирает их в пакеты (по размеру пакета или окну ожидания) и сбрасывает каждый пакет на диск одним flush.
+ * <p>
+ * Каждая строка начинается с контрольной суммы CRC32C: {@code xxxxxxxx OPERATION,payload}.
+ * Переводы строк и обратная косая черта в записи экранируются ({@code \n}, {@code \r}, {@code \\}),
+ * поэтому многострочное описание задачи остается одной строкой журнала.
+ * При чтении оборванный или поврежденный хвост самого нового файла журнала отбрасывается, а файл усекается
+ * до последней целой записи: только там может остаться недописанная при сбое запись. Сегмент, за которым
+ * следуют более новые файлы, перед переименованием был записан полностью, поэтому повреждение в нем
+ * означает потерю данных в середине журнала, и чтение прерывается {@link ManagerSaveException}.
+ * Строки без контрольной суммы (старый формат) принимаются как есть.
+ * <p>
+ * При политике {@link FsyncPolicy#INTERVAL} запись, не попавшая в очередной fsync, сбрасывается на диск
+ * отдельным таймером через интервал после предыдущего сброса, даже если новых записей больше нет.
+ * Поэтому при сбое ОС или питания теряются записи не старше интервала (плюс время самого fsync);
+ * при падении только процесса синхронные записи не теряются - каждая уже передана ОС.
+ */
+public class TaskJournal {
+    private final Path path; // Путь к активному файлу журнала
+    private FileOutputStream file; // Открывается при первой записи и остается открытым
+    private BufferedOutputStream writer; // Буфер над file
+    private final CRC32C checksum = new CRC32C(); // Используется потоком, вызывающим append
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.NEVER; // Политика принудительного сброса на диск
+    private volatile long fsyncIntervalNanos; // Интервал сброса для политики INTERVAL
+    private long lastFsync = System.nanoTime(); // Время последнего принудительного сброса
+    private final Object fsyncLock = new Object(); // Сброс на диск из потока записи и из таймера
+    private boolean unsynced; // Есть записи, переданные ОС, но еще не сброшенные на диск
+    private ScheduledExecutorService fsyncTimer; // Таймер отложенного сброса для INTERVAL, создается при надобности
+    private ScheduledFuture<?> pendingFsync; // Запланированный отложенный сброс
+    private long records; // Количество записей, не покрытых снимком
+    private long bytes; // Объем записей, не покрытых снимком
+    private long nextSegment = 1; // Номер следующего сегмента
+    private static final int CHECKSUM_LENGTH = 8; // Длина контрольной суммы в шестнадцатеричном виде
+    private BlockingQueue<Entry> queue; // Очередь записей для потока группового коммита, null в синхронном режиме
+    private Thread committer; // Поток группового коммита
+    private CompletableFuture<Void> lastCommit = CompletableFuture.completedFuture(null); // Последняя поставленная запись
+    private Duration commitWindow; // Окно ожидания дополнительных записей в пакет
+    private int commitBatchSize; // Максимальный размер пакета
+
+    /**
+     * Операции, записываемые в журнал.
+     */
+    public enum Operation {
+        PUT, // Добавление или обновление задачи, payload - строка CSV
+        DELETE, // Удаление задачи, payload - id
+        CLEAR, // Удаление всех задач одного типа, payload - TaskType
+        META // Следующий id и история просмотров, payload - nextId,id1,id2,...
+    }
+
+    public TaskJournal(String filePath) {
+        this.path = Path.of(filePath).toAbsolutePath();
+    }
+
+    /**
+     * Настройка политики принудительного сброса записей на диск (fsync)
+     * @param policy ALWAYS, INTERVAL или NEVER
+     * @param interval для политики INTERVAL - минимальный интервал между сбросами
+     *                 и наибольший срок, в течение которого запись может оставаться не сброшенной
+     */
+    public void setFsyncPolicy(FsyncPolicy policy, Duration interval) {
+        this.fsyncIntervalNanos = interval.toNanos();
+        this.fsyncPolicy = policy;
+    }
+
+    /**
+     * Включение группового коммита: дальнейшие записи выполняет отдельный поток
+     * @param window время ожидания дополнительных записей после первой записи пакета
+     * @param batchSize максимальное число записей в пакете
+     */
+    public void startGroupCommit(Duration window, int batchSize) {
+        if (window.isNegative() || batchSize <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры группового коммита");
+        }
+        if (committer != null) {
+            throw new IllegalStateException("Групповой коммит уже запущен");
+        }
+        commitWindow = window;
+        commitBatchSize = batchSize;
+        queue = new LinkedBlockingQueue<>();
+        committer = new Thread(this::commitLoop, "task-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Дозапись одной записи в конец журнала
+     * @param operation операция
+     * @param payload данные операции
+     * @return future, завершающийся после сброса записи на диск (в синхронном режиме уже завершен)
+     */
+    public CompletableFuture<Void> append(Operation operation, String payload) {
+        byte[] line = encode(escape(operation.name() + ',' + payload));
+        records++;
+        bytes += line.length;
+        if (queue == null) {
+            try {
+                write(line);
+                flush(); // Запись уходит в файл сразу, без буферизации между операциями
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при записи в журнал", e);
+            }
+            return lastCommit;
+        }
+        Entry entry = new Entry(line, null);
+        lastCommit = entry.future;
+        queue.add(entry);
+        return entry.future;
+    }
+
+    /**
+     * Future последней поставленной записи: после его завершения на диске все ранее добавленные записи
+     * @return future сброса последней записи
+     */
+    public CompletableFuture<Void> whenPersisted() {
+        return lastCommit;
+    }
+
+    /**
+     * Потоковое чтение всех записей журнала в порядке их добавления: сначала сегменты, затем активный файл.
+     * Журнал не загружается в память целиком, каждая строка сразу передается обработчику.
+     * Поврежденный хвост самого нового файла отбрасывается с сообщением, файл усекается до последней целой записи.
+     * @param consumer обработчик строк журнала (без контрольной суммы)
+     * @throws ManagerSaveException если поврежден сегмент, за которым есть более новые записи
+     */
+    public void replay(Consumer<String> consumer) {
+        records = 0; // Непокрытые снимком записи учитываются при следующей проверке порога
+        bytes = 0;
+        List<Path> files = new ArrayList<>(sealedSegments());
+        if (Files.exists(path)) {
+            files.add(path);
+        }
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                replayFile(files.get(i), consumer, i == files.size() - 1);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала", e);
+        }
+    }
+
+    /**
+     * Чтение закрытых сегментов журнала (для построения снимка в фоновом потоке).
+     * Счетчики и файлы журнала не меняются; уже удаленные сегменты пропускаются - их записи есть в снимке.
+     * @param segments сегменты в порядке записи, полученные из {@link #rotate()}
+     * @param consumer обработчик записей
+     * @throws ManagerSaveException если сегмент поврежден
+     */
+    public void readSegments(List<Path> segments, Consumer<String> consumer) {
+        TaskJournal reader = new TaskJournal(path.toString()); // Собственные счетчики записей
+        try {
+            for (Path segment : segments) {
+                if (Files.exists(segment)) {
+                    reader.replayFile(segment, consumer, false);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала", e);
+        }
+    }
+
+    /**
+     * Чтение одного файла журнала с проверкой контрольных сумм
+     * @param source файл журнала
+     * @param consumer обработчик записей
+     * @param truncateTail усекать ли файл после последней целой записи (только для самого нового файла);
+     *                     иначе неполная или поврежденная запись - ошибка
+     */
+    private void replayFile(Path source, Consumer<String> consumer, boolean truncateTail) throws IOException {
+        long size = Files.size(source);
+        long validEnd = 0; // Смещение конца последней целой записи
+        try (InputStream in = Files.newInputStream(source)) {
+            byte[] buffer = new byte[1 << 16];
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = 0;
+            int read;
+            reading:
+            while ((read = in.read(buffer)) > 0) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    line.write(buffer, start, i - start);
+                    start = i + 1;
+                    String record = decode(line.toByteArray());
+                    if (record == null) {
+                        break reading; // Все, что дальше поврежденной записи, считается недостоверным
+                    }
+                    records++;
+                    bytes += line.size() + 1;
+                    validEnd = offset + i + 1;
+                    line.reset();
+                    if (!record.isEmpty()) {
+                        consumer.accept(record);
+                    }
+                }
+                line.write(buffer, start, read - start);
+                offset += read;
+            }
+        }
+        if (validEnd < size && !truncateTail) {
+            throw new ManagerSaveException("Журнал " + source.getFileName() + " поврежден на смещении " + validEnd
+                    + ", за ним есть более новые записи; проигрывание остановлено");
+        }
+        if (validEnd < size) {
+            System.out.println("Журнал " + source.getFileName() + ": поврежденная или неполная запись на смещении "
+                    + validEnd + ", отброшено байт: " + (size - validEnd));
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+        }
+    }
+
+    /**
+     * Формирование строки журнала с контрольной суммой
+     * @param record запись без контрольной суммы
+     * @return байты строки, включая перевод строки
+     */
+    private byte[] encode(String record) {
+        byte[] body = record.getBytes(StandardCharsets.UTF_8);
+        checksum.reset();
+        checksum.update(body);
+        byte[] line = new byte[CHECKSUM_LENGTH + 1 + body.length + 1];
+        long crc = checksum.getValue();
+        for (int i = CHECKSUM_LENGTH - 1; i >= 0; i--, crc >>>= 4) {
+            line[i] = (byte) Character.forDigit((int) (crc & 0xF), 16);
+        }
+        line[CHECKSUM_LENGTH] = ' ';
+        System.arraycopy(body, 0, line, CHECKSUM_LENGTH + 1, body.length);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    /**
+     * Проверка контрольной суммы строки журнала
+     * @param line строка без перевода строки
+     * @return запись без контрольной суммы или null, если сумма не совпала
+     */
+    private static String decode(byte[] line) {
+        if (line.length <= CHECKSUM_LENGTH || line[CHECKSUM_LENGTH] != ' ' || !isHex(line)) {
+            return new String(line, StandardCharsets.UTF_8); // Запись старого формата без контрольной суммы
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(line, CHECKSUM_LENGTH + 1, line.length - CHECKSUM_LENGTH - 1);
+        long expected = Long.parseLong(new String(line, 0, CHECKSUM_LENGTH, StandardCharsets.US_ASCII), 16);
+        if (crc.getValue() != expected) {
+            return null;
+        }
+        return unescape(new String(line, CHECKSUM_LENGTH + 1, line.length - CHECKSUM_LENGTH - 1,
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Экранирование переводов строк и обратной косой черты, чтобы запись занимала ровно одну строку
+     * @param record запись
+     * @return запись без символов \n и \r
+     */
+    private static String escape(String record) {
+        if (record.indexOf('\\') < 0 && record.indexOf('\n') < 0 && record.indexOf('\r') < 0) {
+            return record;
+        }
+        StringBuilder escaped = new StringBuilder(record.length() + 16);
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Обратное к {@link #escape} преобразование
+     * @param record запись из журнала
+     * @return исходная запись
+     */
+    private static String unescape(String record) {
+        if (record.indexOf('\\') < 0) {
+            return record;
+        }
+        StringBuilder result = new StringBuilder(record.length());
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c != '\\' || i + 1 == record.length()) {
+                result.append(c);
+                continue;
+            }
+            char next = record.charAt(++i);
+            result.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return result.toString();
+    }
+
+    private static boolean isHex(byte[] line) {
+        for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+            if (Character.digit(line[i], 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Закрытие активного файла и его переименование в сегмент.
+     * Следующая запись начнет новый активный файл. При групповом коммите ротация выполняется потоком записи
+     * после всех ранее поставленных записей.
+     * @return future со всеми закрытыми сегментами, которые будут покрыты снимком текущего состояния
+     */
+    public CompletableFuture<List<Path>> rotate() {
+        records = 0;
+        bytes = 0;
+        if (queue == null) {
+            return CompletableFuture.completedFuture(rotateFile());
+        }
+        CompletableFuture<List<Path>> rotated = new CompletableFuture<>();
+        Entry entry = new Entry(null, rotated);
+        queue.add(entry);
+        return rotated;
+    }
+
+    /**
+     * Удаление сегментов, состояние которых уже сохранено в снимке
+     * @param segments сегменты, полученные из {@link #rotate()}
+     */
+    public void deleteSegments(List<Path> segments) {
+        try {
+            for (Path segment : segments) {
+                Files.deleteIfExists(segment);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при удалении сегмента журнала", e);
+        }
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Закрытие файла журнала. При групповом коммите сначала дописываются все поставленные записи
+     * и останавливается поток записи. Следующая запись откроет файл заново в синхронном режиме.
+     */
+    public void close() {
+        if (committer != null) {
+            queue.add(Entry.STOP);
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            committer = null;
+            queue = null;
+        }
+        closeWriter();
+        synchronized (fsyncLock) {
+            if (fsyncTimer != null) {
+                fsyncTimer.shutdownNow(); // Файл уже сброшен при закрытии
+                fsyncTimer = null;
+                pendingFsync = null;
+            }
+        }
+    }
+
+    /**
+     * @return true, если есть записи, еще не сброшенные на диск при политике INTERVAL
+     */
+    boolean hasUnsyncedWrites() {
+        synchronized (fsyncLock) {
+            return unsynced;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        synchronized (fsyncLock) {
+            try {
+                writer.flush();
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    file.getChannel().force(false); // Перед закрытием или ротацией файл сбрасывается полностью
+                    unsynced = false;
+                }
+                writer.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при закрытии журнала", e);
+            } finally {
+                writer = null;
+                file = null;
+            }
+        }
+    }
+
+    private void write(byte[] line) throws IOException {
+        if (writer == null) {
+            file = new FileOutputStream(path.toFile(), true);
+            writer = new BufferedOutputStream(file, 1 << 16);
+        }
+        writer.write(line);
+    }
+
+    /**
+     * Сброс буфера в файл и, в зависимости от политики, принудительная запись на диск.
+     * При INTERVAL запись, пришедшая раньше интервала, сбрасывается таймером (см. {@link #syncPending()})
+     */
+    private void flush() throws IOException {
+        writer.flush();
+        FsyncPolicy policy = fsyncPolicy;
+        if (policy == FsyncPolicy.NEVER) {
+            return;
+        }
+        synchronized (fsyncLock) {
+            long now = System.nanoTime();
+            if (policy == FsyncPolicy.ALWAYS || now - lastFsync >= fsyncIntervalNanos) {
+                file.getChannel().force(false);
+                lastFsync = now;
+                unsynced = false;
+                return;
+            }
+            unsynced = true;
+            if (pendingFsync == null) {
+                if (fsyncTimer == null) {
+                    fsyncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "task-journal-fsync");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                pendingFsync = fsyncTimer.schedule(this::syncPending,
+                        lastFsync + fsyncIntervalNanos - now, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Отложенный сброс на диск записей, оставшихся после последнего fsync.
+     * Если файл уже закрыт или ротирован, он был сброшен при закрытии
+     */
+    private void syncPending() {
+        synchronized (fsyncLock) {
+            pendingFsync = null;
+            if (!unsynced) {
+                return;
+            }
+            try {
+                if (file != null) {
+                    file.getChannel().force(false);
+                }
+                lastFsync = System.nanoTime();
+                unsynced = false;
+            } catch (IOException e) { // Запись остается не сброшенной и будет сброшена следующим flush или закрытием
+                System.out.println("Ошибка при сбросе журнала на диск: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> rotateFile() {
+        closeWriter();
+        try {
+            if (Files.exists(path) && Files.size(path) > 0) {
+                Files.move(path, segmentPath(nextSegment++));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при ротации журнала", e);
+        }
+        return sealedSegments();
+    }
+
+    /**
+     * Цикл потока группового коммита: ожидание первой записи, добор пакета в пределах окна,
+     * запись пакета и один flush на весь пакет
+     */
+    private void commitLoop() {
+        List<Entry> batch = new ArrayList<>(commitBatchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + commitWindow.toNanos();
+                while (batch.size() < commitBatchSize) {
+                    Entry next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            running &= commitBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Запись пакета в порядке постановки. Ротации внутри пакета выполняются после сброса предыдущих записей.
+     * @param batch записи пакета
+     * @return false, если получен сигнал остановки
+     */
+    private boolean commitBatch(List<Entry> batch) {
+        List<Entry> written = new ArrayList<>();
+        boolean running = true;
+        try {
+            for (Entry entry : batch) {
+                if (entry == Entry.STOP) {
+                    running = false;
+                } else if (entry.line != null) {
+                    write(entry.line);
+                    written.add(entry);
+                } else {
+                    flushAndComplete(written);
+                    entry.rotated.complete(rotateFile());
+                }
+            }
+            flushAndComplete(written);
+        } catch (IOException | RuntimeException e) {
+            ManagerSaveException failure = new ManagerSaveException("Ошибка при записи в журнал", e);
+            System.out.println(failure.getMessage() + ": " + e.getMessage());
+            batch.forEach(entry -> {
+                if (entry.future != null) entry.future.completeExceptionally(failure);
+                if (entry.rotated != null) entry.rotated.completeExceptionally(failure);
+            });
+        }
+        return running;
+    }
+
+    private void flushAndComplete(List<Entry> written) throws IOException {
+        if (written.isEmpty()) {
+            return;
+        }
+        flush(); // Один flush на весь пакет
+        written.forEach(entry -> entry.future.complete(null));
+        written.clear();
+    }
+
+    private Path segmentPath(long number) {
+        return path.resolveSibling(path.getFileName() + "." + number);
+    }
+
+    /**
+     * Поиск сегментов журнала на диске
+     * @return сегменты в порядке возрастания номера
+     */
+    private List<Path> sealedSegments() {
+        String prefix = path.getFileName() + ".";
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            List<Path> segments = files
+                    .filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .filter(file -> file.getFileName().toString().substring(prefix.length()).matches("\\d+"))
+                    .sorted(Comparator.comparingLong(file -> segmentNumber(file, prefix)))
+                    .toList();
+            if (!segments.isEmpty()) {
+                nextSegment = Math.max(nextSegment, segmentNumber(segments.get(segments.size() - 1), prefix) + 1);
+            }
+            return segments;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при поиске сегментов журнала", e);
+        }
+    }
+
+    private static long segmentNumber(Path file, String prefix) {
+        return Long.parseLong(file.getFileName().toString().substring(prefix.length()));
+    }
+
+    /**
+     * Элемент очереди группового коммита: строка журнала либо запрос на ротацию
+     */
+    private static class Entry {
+        static final Entry STOP = new Entry(null, null); // Сигнал остановки потока записи
+
+        final byte[] line; // Строка журнала с контрольной суммой, null для ротации
+        final CompletableFuture<Void> future; // Завершается после сброса строки на диск
+        final CompletableFuture<List<Path>> rotated; // Завершается после ротации
+
+        Entry(byte[] line, CompletableFuture<List<Path>> rotated) {
+            this.line = line;
+            this.future = line != null ? new CompletableFuture<>() : null;
+            this.rotated = rotated;
+        }
+    }
+}
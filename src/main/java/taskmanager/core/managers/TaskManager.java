@@ -1,6 +1,11 @@
 package taskmanager.core.managers;
 
 import taskmanager.core.model.*;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TaskManager {
@@ -26,6 +31,12 @@ public interface TaskManager {
 
     List<Task> getPrioritizedTasks();
 
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime from, LocalDateTime to);
+
+    List<Task> autoSchedule(List<? extends Task> batch, LocalDateTime from, LocalDateTime to);
+
     void addTask(Task task);
 
     void addSubtask(Subtask subtask);
@@ -46,7 +57,27 @@ public interface TaskManager {
 
     void deleteEpicById(int id);
 
+    void addAll(List<? extends Task> batch);
+
+    void updateAll(List<? extends Task> batch);
+
+    void deleteAll(List<Integer> ids);
+
     boolean hasTimeOverlap(Task task);
 
     List<Subtask> getAllSubtasksByEpicId(int epicId);
+
+    List<Task> findTasks(TaskType type, Status status);
+
+    List<Task> getPage(TaskType type, Status status, int afterId, int limit);
+
+    List<Task> getPrioritizedPage(LocalDateTime afterStart, int afterId, int limit);
+
+    long getVersion();
+
+    long getVersion(TaskType type);
+
+    long getEntityVersion(int id);
+
+    long getHistoryVersion();
 }
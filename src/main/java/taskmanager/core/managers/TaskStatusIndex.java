@@ -0,0 +1,189 @@
+package taskmanager.core.managers;
+
+import taskmanager.core.model.Task;
+import taskmanager.core.util.IntObjectMap;
+import taskmanager.core.util.IntTreeSet;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
+
+import java.util.Arrays;
+
+/**
+ * Вторичный индекс задач по типу и статусу: для каждой пары (TaskType, Status) хранится упорядоченное
+ * множество id, и отдельно - упорядоченное множество всех id каждого типа.
+ * Для каждого id запоминается пара, под которой он проиндексирован, поэтому повторная индексация
+ * уже измененного снаружи объекта корректно переносит id между множествами.
+ * Задачи без статуса попадают в отдельное множество и находятся только запросом без фильтра по статусу.
+ * Изменение стоит O(log n), страница по курсору - O(log n + limit) как с фильтром по статусу, так и без него.
+ * Кроме того, индекс выдает каждой задаче версию, меняющуюся при каждом ее изменении (см. {@link #version}),
+ * и помнит id последних изменений, чтобы копии коллекций можно было обновлять только по измененным задачам
+ * (см. {@link #changedSince}).
+ */
+public class TaskStatusIndex {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final int NO_STATUS = STATUSES.length; // Номер множества для задач без статуса
+    private static final int CHANGE_LOG_SIZE = 1 << 12; // Степень двойки: номер ячейки - младшие биты версии
+    private static final Key[][] KEYS = new Key[TYPES.length][STATUSES.length + 1]; // Общие ключи без выделений
+
+    static {
+        for (TaskType type : TYPES) {
+            for (int status = 0; status <= STATUSES.length; status++) {
+                KEYS[type.ordinal()][status] = new Key(type.ordinal(), status);
+            }
+        }
+    }
+
+    private final IntTreeSet[][] buckets = new IntTreeSet[TYPES.length][STATUSES.length + 1];
+    private final IntObjectMap<Entry> indexed = new IntObjectMap<>(); // id -> пара индексации и версия задачи
+    private long stamp; // Последняя выданная версия задачи
+    private final int[] changes = new int[CHANGE_LOG_SIZE]; // Кольцо: id, измененный с версией s, - в ячейке s
+    private final IntTreeSet[] ordered = new IntTreeSet[TYPES.length]; // Все id каждого типа
+
+    public TaskStatusIndex() {
+        for (int type = 0; type < ordered.length; type++) {
+            ordered[type] = new IntTreeSet();
+        }
+        for (IntTreeSet[] byStatus : buckets) {
+            for (int i = 0; i < byStatus.length; i++) {
+                byStatus[i] = new IntTreeSet();
+            }
+        }
+    }
+
+    /**
+     * Индексация (или переиндексация) задачи по ее текущему статусу
+     * @param type тип задачи
+     * @param task задача, эпик или подзадача
+     */
+    public void put(TaskType type, Task task) {
+        Key key = KEYS[type.ordinal()][task.getStatus() != null ? task.getStatus().ordinal() : NO_STATUS];
+        Entry entry = indexed.get(task.getId());
+        if (entry == null) {
+            entry = new Entry();
+            indexed.put(task.getId(), entry);
+        }
+        entry.version = touch(task.getId()); // Каждая индексация - изменение задачи
+        Key old = entry.key;
+        entry.key = key;
+        if (old == key) {
+            return;
+        }
+        if (old != null) {
+            buckets[old.type()][old.status()].remove(task.getId());
+        }
+        if (old == null || old.type() != key.type()) {
+            if (old != null) {
+                ordered[old.type()].remove(task.getId());
+            }
+            ordered[key.type()].add(task.getId());
+        }
+        buckets[key.type()][key.status()].add(task.getId());
+    }
+
+    public void remove(int id) {
+        Entry entry = indexed.remove(id);
+        if (entry != null) {
+            touch(id);
+            Key old = entry.key;
+            buckets[old.type()][old.status()].remove(id);
+            ordered[old.type()].remove(id);
+        }
+    }
+
+    /**
+     * Удаление из индекса всех задач одного типа
+     * @param type тип задач
+     */
+    public void clear(TaskType type) {
+        for (int id : ordered[type.ordinal()].toArray()) {
+            indexed.remove(id);
+            touch(id);
+        }
+        for (IntTreeSet bucket : buckets[type.ordinal()]) {
+            bucket.clear();
+        }
+        ordered[type.ordinal()].clear();
+    }
+
+    /**
+     * Страница id указанного типа и статуса по возрастанию, начиная после курсора.
+     * Стоит O(log n + limit): с фильтром поиск идет сразу по множеству нужного статуса.
+     * @param type тип задач
+     * @param status статус или null для всех статусов
+     * @param afterId курсор: выдаются только id больше него
+     * @param limit максимальное число id
+     * @return новый массив id
+     */
+    public int[] page(TaskType type, Status status, int afterId, int limit) {
+        IntTreeSet ids = status == null ? ordered[type.ordinal()] : buckets[type.ordinal()][status.ordinal()];
+        int[] result = new int[Math.min(limit, ids.size())];
+        int count = ids.page(afterId, result, result.length);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * id задач указанного типа и статуса по возрастанию
+     * @param type тип задач
+     * @param status статус или null для всех статусов
+     * @return новый массив id
+     */
+    public int[] find(TaskType type, Status status) {
+        return status == null ? ordered[type.ordinal()].toArray() : buckets[type.ordinal()][status.ordinal()].toArray();
+    }
+
+    /**
+     * Версия задачи: меняется при каждой индексации задачи, то есть при каждом ее изменении менеджером,
+     * включая пересчет статуса и времени эпика. Версии не повторяются, в том числе после удаления задачи.
+     * @param id идентификатор задачи
+     * @return версия задачи или 0, если задачи нет в индексе
+     */
+    public long version(int id) {
+        Entry entry = indexed.get(id);
+        return entry != null ? entry.version : 0;
+    }
+
+    /**
+     * Последняя выданная версия: растет при каждой индексации и каждом удалении задачи
+     * @return номер последнего изменения
+     */
+    public long stamp() {
+        return stamp;
+    }
+
+    /**
+     * id задач, измененных или удаленных после указанной версии, в порядке изменений (id могут повторяться).
+     * Помнятся только последние {@value #CHANGE_LOG_SIZE} изменений.
+     * @param afterStamp версия, полученная ранее из {@link #stamp()}
+     * @return новый массив id или null, если изменений было больше, чем помнит индекс
+     */
+    public int[] changedSince(long afterStamp) {
+        if (afterStamp < 0 || afterStamp > stamp || stamp - afterStamp > CHANGE_LOG_SIZE) {
+            return null;
+        }
+        int[] ids = new int[(int) (stamp - afterStamp)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = changes[(int) ((afterStamp + 1 + i) & (CHANGE_LOG_SIZE - 1))];
+        }
+        return ids;
+    }
+
+    private long touch(int id) {
+        changes[(int) (++stamp & (CHANGE_LOG_SIZE - 1))] = id;
+        return stamp;
+    }
+
+    /**
+     * Пара индексации и версия одной задачи; объект создается один раз на id и дальше изменяется на месте
+     */
+    private static final class Entry {
+        Key key;
+        long version;
+    }
+
+    /**
+     * Пара (тип, статус) по порядковым номерам
+     */
+    private record Key(int type, int status) {
+    }
+}
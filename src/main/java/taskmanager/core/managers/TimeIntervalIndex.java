@@ -0,0 +1,233 @@
+package taskmanager.core.managers;
+
+import taskmanager.core.model.Task;
+import taskmanager.core.util.IntObjectMap;
+import taskmanager.core.util.IntSet;
+
+import java.time.LocalDateTime;
+
+/**
+ * Индекс временных интервалов задач (дополненное интервальное дерево).
+ * Узлы упорядочены по (startTime, id), каждый узел хранит максимальное время окончания в своем поддереве.
+ * Вставка, удаление и проверка пересечения выполняются за O(log n).
+ * <p>
+ * Семантика пересечения совпадает с {@link Task#isOverlapping(Task)}: границы включаются,
+ * задачи без startTime в индекс не попадают. Задача без продолжительности считается интервалом нулевой длины.
+ */
+public class TimeIntervalIndex {
+    private final IntObjectMap<Node> nodesById = new IntObjectMap<>(); // id задачи -> узел дерева
+    private Node root;
+
+    /**
+     * Добавление (или замена) интервала задачи.
+     * Интервал копируется в узел, поэтому последующее изменение объекта задачи не ломает дерево.
+     * @param task задача со startTime; задачи без времени игнорируются
+     */
+    public void add(Task task) {
+        remove(task.getId()); // Старый интервал задачи с тем же id больше не актуален
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return;
+        }
+        Node node = new Node(task.getId(), start, endOf(task));
+        root = insert(root, node);
+        nodesById.put(node.id, node);
+    }
+
+    /**
+     * Удаление интервала задачи по id.
+     * @param id идентификатор задачи
+     */
+    public void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node != null) {
+            root = delete(root, node.start, node.id);
+        }
+    }
+
+    /**
+     * Проверка пересечения задачи с любым интервалом индекса.
+     * @param task проверяемая задача
+     * @return true, если найден пересекающийся интервал
+     */
+    public boolean overlaps(Task task) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return false;
+        }
+        LocalDateTime end = endOf(task);
+        Node current = root;
+        while (current != null) {
+            if (!current.end.isBefore(start) && !end.isBefore(current.start)) {
+                return true;
+            }
+            // Если в левом поддереве есть окончание не раньше start, то искать имеет смысл только там:
+            // при его отсутствии слева все интервалы справа начинаются еще позже
+            if (current.left != null && !current.left.maxEnd.isBefore(start)) {
+                current = current.left;
+            } else {
+                current = current.right;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверка пересечения без учета интервалов с указанными id (например, прежних версий обновляемых задач).
+     * Поддеревья, в которых все окончания раньше start или все начала позже окончания задачи, не обходятся,
+     * поэтому сложность O(log n + число пропущенных пересечений).
+     * @param task проверяемая задача
+     * @param ignoredIds id задач, пересечения с которыми не учитываются
+     * @return true, если найден пересекающийся интервал с id не из ignoredIds
+     */
+    public boolean overlaps(Task task, IntSet ignoredIds) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return false;
+        }
+        return overlaps(root, start, endOf(task), ignoredIds);
+    }
+
+    private static boolean overlaps(Node node, LocalDateTime start, LocalDateTime end, IntSet ignoredIds) {
+        if (node == null || node.maxEnd.isBefore(start)) {
+            return false;
+        }
+        if (overlaps(node.left, start, end, ignoredIds)) {
+            return true;
+        }
+        if (end.isBefore(node.start)) {
+            return false; // Этот узел и правое поддерево начинаются позже окончания задачи
+        }
+        if (!node.end.isBefore(start) && !ignoredIds.contains(node.id)) {
+            return true;
+        }
+        return overlaps(node.right, start, end, ignoredIds);
+    }
+
+    public void clear() {
+        root = null;
+        nodesById.clear();
+    }
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    private static LocalDateTime endOf(Task task) {
+        LocalDateTime end = task.getEndTime();
+        return end != null ? end : task.getStartTime();
+    }
+
+    private static int compare(LocalDateTime start, int id, Node node) {
+        int cmp = start.compareTo(node.start);
+        return cmp != 0 ? cmp : Integer.compare(id, node.id);
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right; // Самый левый узел правого поддерева заменяет удаляемый
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = delete(node.right, successor.start, successor.id);
+            successor.left = node.left;
+            return rebalance(successor);
+        }
+        return rebalance(node);
+    }
+
+    private Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) { // Пересчет высоты и максимального окончания по дочерним узлам
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime max = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(max)) {
+            max = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(max)) {
+            max = node.right.maxEnd;
+        }
+        node.maxEnd = max;
+    }
+
+    private static class Node {
+        final int id; // Идентификатор задачи
+        final LocalDateTime start; // Начало интервала
+        final LocalDateTime end; // Окончание интервала
+        LocalDateTime maxEnd; // Максимальное окончание в поддереве
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(int id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
@@ -1,25 +1,58 @@
 package taskmanager.core.model;
 
+import com.google.gson.annotations.JsonAdapter;
+import taskmanager.core.util.IntSet;
 import taskmanager.core.util.Status;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.TreeMap;
 
 public class Epic extends Task {
-    private List<Integer> subtaskIds; // id подзадач, относящихся к epic
+    @JsonAdapter(IntSet.JsonAdapter.class) // В JSON остается массивом чисел, как прежний List<Integer>
+    private IntSet subtaskIds; // id подзадач, относящихся к epic
     private transient LocalDateTime startTime;
     private transient Duration duration;
     private transient LocalDateTime endTime;
     private String endTimeStr;
+    private transient int newCount; // Число учтенных подзадач в статусе NEW
+    private transient int inProgressCount; // Число учтенных подзадач в статусе IN_PROGRESS
+    private transient int doneCount; // Число учтенных подзадач в статусе DONE
+    private transient int countedSubtasks; // Общее число учтенных подзадач
+    private transient TreeMap<LocalDateTime, Integer> subtaskStarts; // Начала подзадач: время -> число подзадач
+    private transient TreeMap<LocalDateTime, Integer> subtaskEnds; // Окончания подзадач: время -> число подзадач
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     public Epic(String title, String description) {
         super(title, description, Status.NEW, null, null);
-        this.subtaskIds = new ArrayList<>(); // Создание списка id подзадач
+        this.subtaskIds = new IntSet(); // Создание множества id подзадач
+    }
+
+    /**
+     * Копия видимого состояния эпика: поля, множество id подзадач и время.
+     * Счетчики статусов и времена подзадач не копируются - копия предназначена только для чтения,
+     * статус и время эпика пересчитывает менеджер по оригиналу
+     * @param other копируемый эпик
+     */
+    protected Epic(Epic other) {
+        super(other);
+        this.subtaskIds = new IntSet();
+        for (int subtaskId : other.getSubtaskIdArray()) {
+            this.subtaskIds.add(subtaskId);
+        }
+        this.startTime = other.startTime;
+        this.duration = other.duration;
+        this.endTime = other.endTime;
+        this.endTimeStr = other.endTimeStr;
+    }
+
+    @Override
+    public Epic copy() {
+        return new Epic(this);
     }
 
     public String getEndTimeStr() {
@@ -102,23 +135,156 @@ public class Epic extends Task {
         }
     }
 
+    /**
+     * Изменение счетчиков статусов при добавлении (delta = 1) или удалении (delta = -1) подзадачи
+     * @param status статус подзадачи
+     * @param delta изменение счетчика
+     */
+    public void countSubtaskStatus(Status status, int delta) {
+        countedSubtasks += delta;
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case NEW -> newCount += delta;
+            case IN_PROGRESS -> inProgressCount += delta;
+            case DONE -> doneCount += delta;
+        }
+    }
+
+    /**
+     * Статус эпика по счетчикам подзадач за O(1):
+     * нет подзадач или все NEW - NEW, все DONE - DONE, иначе IN_PROGRESS
+     * @return вычисленный статус
+     */
+    public Status calculateStatus() {
+        if (countedSubtasks == 0 || newCount == countedSubtasks) {
+            return Status.NEW;
+        }
+        return doneCount == countedSubtasks ? Status.DONE : Status.IN_PROGRESS;
+    }
+
+    /**
+     * Учет времени подзадачи за O(log k): начало и окончание эпика пересчитываются
+     * по упорядоченным мультимножествам времен подзадач
+     * @param start начало подзадачи (null не учитывается)
+     * @param end окончание подзадачи (null не учитывается)
+     */
+    public void addSubtaskTime(LocalDateTime start, LocalDateTime end) {
+        if (subtaskStarts == null) {
+            subtaskStarts = new TreeMap<>();
+            subtaskEnds = new TreeMap<>();
+        }
+        if (start != null) subtaskStarts.merge(start, 1, Integer::sum);
+        if (end != null) subtaskEnds.merge(end, 1, Integer::sum);
+        refreshTimeWindow();
+    }
+
+    /**
+     * Снятие ранее учтенного времени подзадачи
+     * @param start начало подзадачи, переданное при учете
+     * @param end окончание подзадачи, переданное при учете
+     */
+    public void removeSubtaskTime(LocalDateTime start, LocalDateTime end) {
+        if (subtaskStarts == null) {
+            return;
+        }
+        if (start != null) subtaskStarts.computeIfPresent(start, (time, count) -> count > 1 ? count - 1 : null);
+        if (end != null) subtaskEnds.computeIfPresent(end, (time, count) -> count > 1 ? count - 1 : null);
+        refreshTimeWindow();
+    }
+
+    /**
+     * Начало эпика - самое раннее начало подзадач, окончание - самое позднее окончание,
+     * продолжительность - время между ними (как в updateTimeParameters)
+     */
+    private void refreshTimeWindow() {
+        LocalDateTime earliestStart = subtaskStarts.isEmpty() ? null : subtaskStarts.firstKey();
+        LocalDateTime latestEnd = subtaskEnds.isEmpty() ? null : subtaskEnds.lastKey();
+        this.setStartTime(earliestStart);
+        this.endTime = latestEnd;
+        if (earliestStart != null && latestEnd != null) {
+            this.setDuration(Duration.between(earliestStart, latestEnd));
+        } else {
+            this.setDuration(null);
+        }
+    }
+
+    /**
+     * Перенос счетчиков статусов и времен подзадач из прежней версии эпика (при замене объекта эпика)
+     * @param other прежняя версия эпика
+     */
+    public void copySubtaskAggregates(Epic other) {
+        this.newCount = other.newCount;
+        this.inProgressCount = other.inProgressCount;
+        this.doneCount = other.doneCount;
+        this.countedSubtasks = other.countedSubtasks;
+        if (other.subtaskStarts != null) {
+            this.subtaskStarts = new TreeMap<>(other.subtaskStarts);
+            this.subtaskEnds = new TreeMap<>(other.subtaskEnds);
+            refreshTimeWindow();
+        }
+    }
+
+    public void resetSubtaskAggregates() {
+        newCount = 0;
+        inProgressCount = 0;
+        doneCount = 0;
+        countedSubtasks = 0;
+        if (subtaskStarts != null) {
+            subtaskStarts.clear();
+            subtaskEnds.clear();
+            refreshTimeWindow();
+        }
+    }
+
+    /**
+     * Неизменяемая копия id подзадач по возрастанию.
+     * Для изменения состава используются addSubtask и removeSubtask
+     * @return список id подзадач
+     */
     public List<Integer> getSubtaskIds() {
-        return subtaskIds; // Возврат оригинала списка id подзадач
+        return Arrays.stream(getSubtaskIdArray()).boxed().toList();
+    }
+
+    /**
+     * id подзадач по возрастанию без упаковки
+     * @return новый массив id
+     */
+    public int[] getSubtaskIdArray() {
+        return subtaskIds != null ? subtaskIds.toArray() : new int[0];
     }
 
     public void setSubtaskIds(List<Integer> subtaskIds) {
-        this.subtaskIds = subtaskIds;
+        this.subtaskIds = new IntSet();
+        subtaskIds.forEach(this.subtaskIds::add);
     }
 
     public void addSubtask(int subtaskId) {
         if (subtaskId == this.getId()) return;
 
         if (subtaskIds == null) {
-            subtaskIds = new ArrayList<>();
+            subtaskIds = new IntSet();
         }
+        subtaskIds.add(subtaskId); // Дубликаты множеством не добавляются, O(1)
+    }
+
+    /**
+     * Удаление подзадачи из эпика за O(1)
+     * @param subtaskId id подзадачи
+     * @return true, если подзадача принадлежала эпику
+     */
+    public boolean removeSubtask(int subtaskId) {
+        return subtaskIds != null && subtaskIds.remove(subtaskId);
+    }
+
+    public boolean hasSubtask(int subtaskId) {
+        return subtaskIds != null && subtaskIds.contains(subtaskId);
+    }
 
-        if (!subtaskIds.contains(subtaskId)) {
-            subtaskIds.add(subtaskId);
+    public void clearSubtasks() {
+        if (subtaskIds != null) {
+            subtaskIds.clear();
         }
     }
 
@@ -136,7 +302,7 @@ public class Epic extends Task {
     public String toString() {
         return "Epic{" +
                 ", " + super.toString() +
-                "subtasksIds=" + subtaskIds + // Вывод списка id подзадач
+                "subtasksIds=" + getSubtaskIds() + // Вывод списка id подзадач
                 '}';
     }
 
@@ -14,6 +14,16 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    protected Subtask(Subtask other) {
+        super(other);
+        this.epicId = other.epicId;
+    }
+
+    @Override
+    public Subtask copy() {
+        return new Subtask(this);
+    }
+
     public int getEpicId() {
         return epicId;
     }
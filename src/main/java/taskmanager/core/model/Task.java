@@ -34,6 +34,29 @@ public class Task {
         this.status = Status.NEW;
     }
 
+    /**
+     * Копия всех полей задачи (для наследников - основа их копий)
+     * @param other копируемая задача
+     */
+    protected Task(Task other) {
+        this.title = other.title;
+        this.description = other.description;
+        this.id = other.id;
+        this.status = other.status;
+        this.durationInSeconds = other.durationInSeconds;
+        this.startTimeStr = other.startTimeStr;
+        this.startTime = other.startTime;
+        this.duration = other.duration;
+    }
+
+    /**
+     * Независимая копия задачи: дальнейшие изменения исходного объекта на нее не влияют
+     * @return новая задача с теми же полями
+     */
+    public Task copy() {
+        return new Task(this);
+    }
+
     public LocalDateTime getEndTime() {
         if (startTime == null || duration == null) {
             return null;
@@ -0,0 +1,7 @@
+package taskmanager.core.util;
+
+public enum FsyncPolicy {
+    ALWAYS, // Принудительный сброс на диск после каждой записи (или пакета)
+    INTERVAL, // Сброс не чаще интервала; оставшиеся записи сбрасываются таймером не позже чем через интервал
+    NEVER // Сброс на диск остается на усмотрение операционной системы
+}
@@ -0,0 +1,173 @@
+package taskmanager.core.util;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Множество int с открытой адресацией: добавление, удаление и проверка принадлежности за O(1) без упаковки.
+ * Ноль хранится отдельным флагом, так как служит признаком пустой ячейки.
+ * В JSON множество записывается массивом чисел по возрастанию (см. {@link JsonAdapter}).
+ */
+public class IntSet {
+    private static final int MIN_CAPACITY = 8;
+    private int[] table = new int[MIN_CAPACITY];
+    private int size; // Число элементов в таблице (без нуля)
+    private boolean containsZero;
+
+    public boolean add(int value) {
+        if (value == 0) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        int mask = table.length - 1;
+        int slot = slot(value, mask);
+        for (; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == value) {
+                return false;
+            }
+        }
+        table[slot] = value;
+        if (++size * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (value == 0) {
+            boolean removed = containsZero;
+            containsZero = false;
+            return removed;
+        }
+        int mask = table.length - 1;
+        for (int slot = slot(value, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == value) {
+                shiftBack(slot, mask);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        for (int slot = slot(value, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            if (table[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    /**
+     * Элементы множества по возрастанию
+     * @return новый массив
+     */
+    public int[] toArray() {
+        int[] result = new int[size()];
+        int index = 0;
+        if (containsZero) {
+            result[index++] = 0;
+        }
+        for (int value : table) {
+            if (value != 0) {
+                result[index++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int slot(int value, int mask) {
+        return (value ^ (value >>> 16)) & mask;
+    }
+
+    private void shiftBack(int free, int mask) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (table[slot] == 0) {
+                table[free] = 0;
+                return;
+            }
+            int home = slot(table[slot], mask);
+            boolean between = free <= slot ? free < home && home <= slot : free < home || home <= slot;
+            if (!between) {
+                table[free] = table[slot];
+                free = slot;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] old = table;
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : old) {
+            if (value != 0) {
+                int slot = slot(value, mask);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * Сериализация множества в JSON-массив чисел, совместимая с прежним полем List&lt;Integer&gt;
+     */
+    public static class JsonAdapter extends TypeAdapter<IntSet> {
+        @Override
+        public void write(JsonWriter out, IntSet set) throws IOException {
+            if (set == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int value : set.toArray()) {
+                out.value(value);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public IntSet read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            IntSet set = new IntSet();
+            in.beginArray();
+            while (in.hasNext()) {
+                set.add(in.nextInt());
+            }
+            in.endArray();
+            return set;
+        }
+    }
+}
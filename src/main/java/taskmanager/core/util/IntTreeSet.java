@@ -0,0 +1,223 @@
+package taskmanager.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Упорядоченное множество int - AVL-дерево на параллельных массивах (без объектов-узлов и упаковки).
+ * Добавление и удаление стоят O(log n), выборка k элементов после заданного значения - O(log n + k).
+ * Освобожденные ячейки переиспользуются через список свободных, поэтому изменения не выделяют память,
+ * пока дерево не превышает достигнутый ранее размер.
+ */
+public class IntTreeSet {
+    private static final int NIL = 0; // Ячейка 0 - пустое поддерево
+    private int[] keys = new int[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16]; // Для свободных ячеек - следующая свободная
+    private byte[] heights = new byte[16];
+    private int root = NIL;
+    private int free = NIL; // Первая освобожденная ячейка
+    private int used = 1; // Первая ни разу не использованная ячейка
+    private int size;
+    private boolean changed; // Результат последней вставки или удаления
+
+    /**
+     * @return true, если значения еще не было
+     */
+    public boolean add(int value) {
+        changed = false;
+        root = insert(root, value);
+        if (changed) {
+            size++;
+        }
+        return changed;
+    }
+
+    /**
+     * @return true, если значение было удалено
+     */
+    public boolean remove(int value) {
+        changed = false;
+        root = delete(root, value);
+        if (changed) {
+            size--;
+        }
+        return changed;
+    }
+
+    public boolean contains(int value) {
+        int node = root;
+        while (node != NIL && keys[node] != value) {
+            node = value < keys[node] ? left[node] : right[node];
+        }
+        return node != NIL;
+    }
+
+    /**
+     * Запись в массив до limit элементов, больших after, по возрастанию
+     * @param after граница (не включительно)
+     * @param out массив результата длиной не меньше limit
+     * @param limit максимальное число элементов
+     * @return число записанных элементов
+     */
+    public int page(int after, int[] out, int limit) {
+        return collect(root, after, out, 0, limit);
+    }
+
+    /**
+     * @return новый массив всех элементов по возрастанию
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        fill(root, result, 0);
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root = NIL;
+        free = NIL;
+        used = 1;
+        size = 0;
+    }
+
+    private int collect(int node, int after, int[] out, int count, int limit) {
+        if (node == NIL || count == limit) {
+            return count;
+        }
+        if (keys[node] > after) { // Левое поддерево пропускается целиком, если узел не больше границы
+            count = collect(left[node], after, out, count, limit);
+            if (count == limit) {
+                return count;
+            }
+            out[count++] = keys[node];
+        }
+        return collect(right[node], after, out, count, limit);
+    }
+
+    private int fill(int node, int[] out, int count) {
+        if (node == NIL) {
+            return count;
+        }
+        count = fill(left[node], out, count);
+        out[count++] = keys[node];
+        return fill(right[node], out, count);
+    }
+
+    private int insert(int node, int value) {
+        if (node == NIL) {
+            changed = true;
+            return allocate(value);
+        }
+        // Результат сохраняется в локальную переменную: вставка может заменить массивы при росте
+        if (value < keys[node]) {
+            int child = insert(left[node], value);
+            left[node] = child;
+        } else if (value > keys[node]) {
+            int child = insert(right[node], value);
+            right[node] = child;
+        } else {
+            return node;
+        }
+        return changed ? rebalance(node) : node;
+    }
+
+    private int delete(int node, int value) {
+        if (node == NIL) {
+            return NIL;
+        }
+        if (value < keys[node]) {
+            left[node] = delete(left[node], value);
+        } else if (value > keys[node]) {
+            right[node] = delete(right[node], value);
+        } else {
+            changed = true;
+            int replacement;
+            if (left[node] == NIL) {
+                replacement = right[node];
+            } else if (right[node] == NIL) {
+                replacement = left[node];
+            } else {
+                int successor = right[node]; // Самый левый узел правого поддерева заменяет удаляемый
+                while (left[successor] != NIL) {
+                    successor = left[successor];
+                }
+                keys[node] = keys[successor];
+                right[node] = delete(right[node], keys[successor]); // Удаляет ячейку преемника
+                return rebalance(node);
+            }
+            release(node);
+            return replacement;
+        }
+        return changed ? rebalance(node) : node;
+    }
+
+    private int allocate(int value) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = right[node];
+        } else {
+            if (used == keys.length) {
+                int capacity = keys.length * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                heights = Arrays.copyOf(heights, capacity);
+            }
+            node = used++;
+        }
+        keys[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        heights[node] = 1;
+        return node;
+    }
+
+    private void release(int node) {
+        right[node] = free;
+        free = node;
+    }
+
+    private int rebalance(int node) {
+        update(node);
+        int balance = heights[left[node]] - heights[right[node]];
+        if (balance > 1) {
+            if (heights[left[left[node]]] < heights[right[left[node]]]) {
+                left[node] = rotateLeft(left[node]);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heights[right[right[node]]] < heights[left[right[node]]]) {
+                right[node] = rotateRight(right[node]);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int rotateRight(int node) {
+        int top = left[node];
+        left[node] = right[top];
+        right[top] = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    private int rotateLeft(int node) {
+        int top = right[node];
+        right[node] = left[top];
+        left[top] = node;
+        update(node);
+        update(top);
+        return top;
+    }
+
+    private void update(int node) { // heights[NIL] всегда 0
+        heights[node] = (byte) (1 + Math.max(heights[left[node]], heights[right[node]]));
+    }
+}
@@ -3,11 +3,29 @@ package taskmanager.core.util;
 import taskmanager.core.managers.*;
 
 public class Managers {
+    public static final int DEFAULT_HISTORY_CAPACITY = 10_000; // Размер истории просмотров по умолчанию
+
     public static TaskManager getDefault() {
         return new InMemoryTaskManager();
     }
 
+    /**
+     * Менеджер задач с историей просмотров указанного размера
+     * @param historyCapacity максимальное число задач в истории
+     */
+    public static TaskManager getDefault(int historyCapacity) {
+        return new InMemoryTaskManager(getBoundedHistory(historyCapacity));
+    }
+
+    /**
+     * История по умолчанию ограничена {@value #DEFAULT_HISTORY_CAPACITY} последними просмотренными задачами:
+     * запись просмотра и повторное чтение неизменной истории не выделяют память
+     */
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return getBoundedHistory(DEFAULT_HISTORY_CAPACITY);
+    }
+
+    public static HistoryManager getBoundedHistory(int capacity) {
+        return new BoundedHistoryManager(capacity);
     }
 }
@@ -0,0 +1,8 @@
+package taskmanager.core.util;
+
+public enum PersistenceMode {
+    SNAPSHOT, // Полная перезапись CSV-файла при каждом изменении
+    JOURNAL, // Дозапись каждого изменения в журнал
+    ASYNC_JOURNAL, // Дозапись в журнал отдельным потоком с групповым коммитом
+    SEGMENTED // Перезапись только сегментов файла с измененными задачами
+}
@@ -0,0 +1,243 @@
+package taskmanager.core.util;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Неизменяемое упорядоченное отображение с общей структурой (AVL-дерево с копированием пути).
+ * plus и minus возвращают новое отображение за O(log n): копируются только узлы на пути от корня
+ * до измененного ключа, остальные узлы общие с прежней версией. Поэтому любая версия остается
+ * неизменной и читается из любого числа потоков без блокировок.
+ * Удаление отсутствующего ключа возвращает то же отображение.
+ * @param <K> ключ
+ * @param <V> значение (не null)
+ */
+public final class PersistentSortedMap<K, V> {
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+    private final List<V> values = new Values(); // Один объект списка на версию
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * @return значение по ключу или null
+     */
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * @return новое отображение с добавленным или замененным значением
+     */
+    public PersistentSortedMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(value);
+        return new PersistentSortedMap<>(comparator, insert(root, key, value));
+    }
+
+    /**
+     * @return новое отображение без ключа или это же отображение, если ключа не было
+     */
+    public PersistentSortedMap<K, V> minus(K key) {
+        Node<K, V> result = delete(root, key);
+        return result == root ? this : new PersistentSortedMap<>(comparator, result);
+    }
+
+    /**
+     * Неизменяемый список значений по возрастанию ключей: get(i) за O(log n), обход итератором - за O(n).
+     * Для одной версии отображения всегда возвращается один и тот же объект
+     * @return список значений
+     */
+    public List<V> values() {
+        return values;
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        if (cmp > 0) {
+            return balance(node.key, node.value, node.left, insert(node.right, key, value));
+        }
+        return new Node<>(key, value, node.left, node.right);
+    }
+
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) {
+            Node<K, V> left = delete(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (cmp > 0) {
+            Node<K, V> right = delete(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right; // Самый левый узел правого поддерева заменяет удаляемый
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, deleteMin(node.right));
+    }
+
+    private static <K, V> Node<K, V> deleteMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, deleteMin(node.left), node.right);
+    }
+
+    /**
+     * Новый узел с восстановлением баланса (поддеревья отличаются по высоте не больше чем на 2)
+     */
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) < height(left.right)) {
+                Node<K, V> middle = left.right;
+                return new Node<>(middle.key, middle.value,
+                        new Node<>(left.key, left.value, left.left, middle.left),
+                        new Node<>(key, value, middle.right, right));
+            }
+            return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) < height(right.left)) {
+                Node<K, V> middle = right.left;
+                return new Node<>(middle.key, middle.value,
+                        new Node<>(key, value, left, middle.left),
+                        new Node<>(right.key, right.value, middle.right, right.right));
+            }
+            return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int sizeOf(Node<?, ?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    /**
+     * Неизменяемый узел; размер поддерева позволяет выбирать значение по номеру
+     */
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+    }
+
+    private final class Values extends AbstractList<V> {
+        @Override
+        public V get(int index) {
+            Objects.checkIndex(index, size());
+            Node<K, V> node = root;
+            while (true) {
+                int leftSize = sizeOf(node.left);
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index == leftSize) {
+                    return node.value;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return PersistentSortedMap.this.size();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator<>(root);
+        }
+    }
+
+    /**
+     * Обход по возрастанию со стеком глубиной не больше высоты дерева
+     */
+    private static final class ValueIterator<K, V> implements Iterator<V> {
+        private final Node<K, V>[] stack;
+        private int depth;
+
+        @SuppressWarnings("unchecked")
+        ValueIterator(Node<K, V> root) {
+            stack = (Node<K, V>[]) new Node<?, ?>[height(root)];
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public V next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack[--depth];
+            pushLeft(node.right);
+            return node.value;
+        }
+
+        private void pushLeft(Node<K, V> node) {
+            while (node != null) {
+                stack[depth++] = node;
+                node = node.left;
+            }
+        }
+    }
+}
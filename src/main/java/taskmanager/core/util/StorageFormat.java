@@ -0,0 +1,6 @@
+package taskmanager.core.util;
+
+public enum StorageFormat {
+    CSV, // Текстовый формат, пригодный для импорта и экспорта
+    BINARY // Компактный бинарный формат с префиксом длины записей
+}
@@ -1,11 +1,27 @@
 package taskmanager.server.handlers;
 
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import taskmanager.core.managers.TaskManager;
+import taskmanager.core.model.Task;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
+import taskmanager.server.utils.ResponseCache;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Абстрактный базовый класс для обработчиков HTTP-запросов.
@@ -15,13 +31,31 @@ import java.nio.charset.StandardCharsets;
  */
 public abstract class BaseHttpHandler implements HttpHandler {
     protected final TaskManager taskManager;
+    protected final ResponseCache responseCache; // Кеш готовых ответов для часто запрашиваемых GET
+    public static final int MAX_CACHED_LIST_SIZE = 1000; // Списки длиннее отправляются потоком без кеширования
+    private static final int STREAM_BUFFER_SIZE = 8192; // Размер буфера потоковой записи ответа
+    public static final int DEFAULT_PAGE_SIZE = 50; // Размер страницы, если задан только cursor
+    public static final int MAX_PAGE_SIZE = 1000; // Максимальный размер страницы
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor"; // Заголовок с курсором следующей страницы
+    // Метка запуска в ETag: после перезапуска сервера версии начинаются заново и не должны совпасть со старыми
+    private static final String ETAG_EPOCH = Long.toHexString(System.currentTimeMillis());
 
     /**
      * Создается обработчик с указанным менеджером задач.
      * @param taskManager Менеджер задач для операций с данными.
      */
     public BaseHttpHandler(TaskManager taskManager) {
+        this(taskManager, new ResponseCache());
+    }
+
+    /**
+     * Создается обработчик с указанным менеджером задач и общим кешем ответов.
+     * @param taskManager Менеджер задач для операций с данными.
+     * @param responseCache Кеш ответов, общий для обработчиков сервера.
+     */
+    public BaseHttpHandler(TaskManager taskManager, ResponseCache responseCache) {
         this.taskManager = taskManager;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -32,7 +66,20 @@ public abstract class BaseHttpHandler implements HttpHandler {
      * @throws IOException Если произошла ошибка ввода-вывода.
      */
     protected void sendText(HttpExchange exchange, String text, int statusCode) throws IOException {
-        byte[] response = text.getBytes(StandardCharsets.UTF_8);
+        sendBytes(exchange, text.getBytes(StandardCharsets.UTF_8), statusCode);
+    }
+
+    /**
+     * Отправляет готовое тело ответа в формате JSON.
+     * @param exchange Объект HTTP-обмена.
+     * @param response Байты тела в UTF-8.
+     * @param statusCode HTTP-статус код.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected void sendBytes(HttpExchange exchange, byte[] response, int statusCode) throws IOException {
+        if (statusCode >= 400) {
+            exchange.getResponseHeaders().remove("ETag"); // Тело ошибки не является представлением ресурса
+        }
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
         exchange.sendResponseHeaders(statusCode, response.length);
         exchange.getResponseBody().write(response);
@@ -75,6 +122,11 @@ public abstract class BaseHttpHandler implements HttpHandler {
      * @throws IOException Если произошла ошибка ввода-вывода.
      */
     protected void sendServerError(HttpExchange exchange, Exception e) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // Заголовки уже отправлены (потоковый ответ): новый статус невозможен, соединение обрывается
+            // сервером без завершающего блока, и клиент видит прерванный, а не усеченный ответ
+            throw e instanceof IOException io ? io : new IOException("Ответ прерван при передаче", e);
+        }
         sendText(exchange, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}", 500);
     }
 
@@ -109,6 +161,229 @@ public abstract class BaseHttpHandler implements HttpHandler {
         return Integer.parseInt(parts[2]);
     }
 
+    /**
+     * Извлекает параметры строки запроса (например "?status=NEW").
+     * @param exchange Объект HTTP-обмена.
+     * @return Параметры запроса; при повторе имени используется последнее значение.
+     */
+    protected Map<String, String> getQueryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Отправляет список с учетом необязательного фильтра ?status= и постраничной выдачи ?limit=&cursor=.
+     * Без фильтра отправляется полный список, с фильтром - выборка по индексу статусов.
+     * При наличии limit или cursor отправляется страница по возрастанию id, курсор следующей страницы
+     * передается в заголовке {@value #NEXT_CURSOR_HEADER} (отсутствует на последней странице).
+     * Ответ помечается ETag по версии коллекции (см. {@link #notModified}).
+     * @param exchange Объект HTTP-обмена.
+     * @param gson Сериализатор элементов списка.
+     * @param type Тип задач эндпоинта.
+     * @param all Полный список.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected void sendFiltered(HttpExchange exchange, Gson gson, TaskType type,
+                                Supplier<List<?>> all) throws IOException {
+        long version = taskManager.getVersion(type); // До чтения данных, проверка метки - после разбора параметров
+        Map<String, String> params = getQueryParams(exchange);
+        String status = params.get("status");
+        Status parsed = null;
+        if (status != null) {
+            try {
+                parsed = Status.valueOf(status.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, "Некорректный статус: " + status);
+                return;
+            }
+        }
+        if (isPageRequest(params)) {
+            int limit;
+            int afterId;
+            try {
+                limit = parseLimit(params);
+                afterId = params.containsKey("cursor") ? Integer.parseInt(params.get("cursor").trim()) : 0;
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE
+                        + ", cursor - id последнего элемента предыдущей страницы");
+                return;
+            }
+            if (notModified(exchange, type.name(), version)) {
+                return;
+            }
+            sendPage(exchange, gson, taskManager.getPage(type, parsed, afterId, limit + 1), limit,
+                    task -> String.valueOf(task.getId()));
+            return;
+        }
+        if (notModified(exchange, type.name(), version)) {
+            return;
+        }
+        sendJsonList(exchange, gson, parsed == null ? all.get() : taskManager.findTasks(type, parsed));
+    }
+
+    /**
+     * Условный GET: выставляет ETag по версии данных и отвечает 304 (Not Modified) без обращения
+     * к коллекциям, если клиент прислал ту же метку в If-None-Match.
+     * Версия должна быть прочитана до чтения данных: тогда метка никогда не опережает содержимое ответа.
+     * Вызывается после проверки параметров запроса, непосредственно перед отправкой успешного ответа;
+     * ответы с ошибкой метку не получают (см. {@link #sendBytes}).
+     * @param exchange Объект HTTP-обмена.
+     * @param scope Название данных, от которых зависит ответ (коллекция, расписание, история).
+     * @param version Текущая версия этих данных.
+     * @return true, если отправлен ответ 304 и обработку нужно завершить.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected boolean notModified(HttpExchange exchange, String scope, long version) throws IOException {
+        String etag = "\"" + scope + "-" + ETAG_EPOCH + "-" + version + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2); // Слабое сравнение, как требует If-None-Match
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, запрошена ли постраничная выдача.
+     * @param params Параметры запроса.
+     * @return true, если задан limit или cursor.
+     */
+    protected boolean isPageRequest(Map<String, String> params) {
+        return params.containsKey("limit") || params.containsKey("cursor");
+    }
+
+    /**
+     * Извлекает размер страницы из параметра limit.
+     * @param params Параметры запроса.
+     * @return Размер страницы, {@value #DEFAULT_PAGE_SIZE} если параметр не задан.
+     * @throws IllegalArgumentException Если значение не число или вне диапазона 1..{@value #MAX_PAGE_SIZE}.
+     */
+    protected int parseLimit(Map<String, String> params) {
+        String value = params.get("limit");
+        if (value == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        int limit = Integer.parseInt(value.trim());
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы вне допустимого диапазона: " + limit);
+        }
+        return limit;
+    }
+
+    /**
+     * Отправляет страницу, запрошенную с запасом в один элемент: наличие лишнего элемента
+     * означает, что есть следующая страница, и курсор строится по последнему отправленному элементу.
+     * @param exchange Объект HTTP-обмена.
+     * @param gson Сериализатор элементов списка.
+     * @param fetched Не более limit + 1 элементов.
+     * @param limit Размер страницы.
+     * @param cursorOf Построение курсора по элементу.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected void sendPage(HttpExchange exchange, Gson gson, List<Task> fetched, int limit,
+                            Function<Task, String> cursorOf) throws IOException {
+        if (fetched.size() > limit) {
+            fetched = fetched.subList(0, limit);
+            exchange.getResponseHeaders().set(NEXT_CURSOR_HEADER, cursorOf.apply(fetched.get(limit - 1)));
+        }
+        sendJsonList(exchange, gson, fetched);
+    }
+
+    /**
+     * Отправляет список в формате JSON потоком: элементы сериализуются через JsonWriter прямо в тело ответа
+     * с chunked-кодированием, без построения строки и массива байт всего ответа.
+     * Объем памяти на запрос не зависит от размера списка.
+     * При ошибке во время передачи тело не завершается: исключение передается дальше
+     * (см. {@link #sendServerError}), чтобы клиент не принял обрезанный список за полный.
+     * @param exchange Объект HTTP-обмена.
+     * @param gson Сериализатор элементов списка.
+     * @param items Список для отправки.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected void sendJsonList(HttpExchange exchange, Gson gson, List<?> items) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0); // Длина 0 - ответ передается частями
+        writeJsonList(exchange.getResponseBody(), gson, items);
+        exchange.close();
+    }
+
+    /**
+     * Отправляет ответ из кеша, если он построен для текущей версии данных, иначе строит и кеширует его.
+     * @param exchange Объект HTTP-обмена.
+     * @param key Ключ кеша: эндпоинт и id.
+     * @param version Версия данных, прочитанная до чтения самих данных.
+     * @param body Построение тела ответа при промахе кеша.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected void sendCached(HttpExchange exchange, String key, long version,
+                              Supplier<byte[]> body) throws IOException {
+        byte[] response = responseCache.get(key, version);
+        if (response == null) {
+            response = body.get();
+            responseCache.put(key, version, response);
+        }
+        sendBytes(exchange, response, 200);
+    }
+
+    /**
+     * Отправляет список через кеш ответов; длинные списки отправляются потоком и не кешируются.
+     * @param exchange Объект HTTP-обмена.
+     * @param gson Сериализатор элементов списка.
+     * @param key Ключ кеша: эндпоинт и параметры.
+     * @param version Версия данных, прочитанная до чтения самих данных.
+     * @param items Получение списка при промахе кеша.
+     * @throws IOException Если произошла ошибка ввода-вывода.
+     */
+    protected void sendCachedList(HttpExchange exchange, Gson gson, String key, long version,
+                                  Supplier<List<?>> items) throws IOException {
+        byte[] response = responseCache.get(key, version);
+        if (response == null) {
+            List<?> list = items.get();
+            if (list.size() > MAX_CACHED_LIST_SIZE) {
+                sendJsonList(exchange, gson, list);
+                return;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            writeJsonList(buffer, gson, list);
+            response = buffer.toByteArray();
+            responseCache.put(key, version, response);
+        }
+        sendBytes(exchange, response, 200);
+    }
+
+    private static void writeJsonList(OutputStream out, Gson gson, List<?> items) throws IOException {
+        // Поток закрывается только после успешной записи: закрытие тела ответа завершает chunked-передачу
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE));
+        writer.beginArray();
+        for (Object item : items) {
+            gson.toJson(item, item.getClass(), writer); // Сериализация по фактическому типу, как у gson.toJson(list)
+        }
+        writer.endArray();
+        writer.close();
+    }
+
     /**
      * Экранирует спецсимволы в строке для безопасного включения в JSON.
      * @param input Исходная строка.
@@ -5,6 +5,8 @@ import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import taskmanager.core.managers.TaskManager;
 import taskmanager.core.model.Epic;
+import taskmanager.core.util.TaskType;
+import taskmanager.server.utils.ResponseCache;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -21,6 +23,11 @@ public class EpicHandler extends BaseHttpHandler {
         this.gson = gson;
     }
 
+    public EpicHandler(TaskManager taskManager, Gson gson, ResponseCache responseCache) {
+        super(taskManager, responseCache);
+        this.gson = gson;
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -38,13 +45,15 @@ public class EpicHandler extends BaseHttpHandler {
     /**
      * Обработка GET-запросов:
      * - GET /epics - возвращает список всех эпиков
+     * - GET /epics?status=... - возвращает только элементы с указанным статусом
+     * - GET /epics?limit=...&cursor=... - возвращает страницу по возрастанию id, курсор следующей - в X-Next-Cursor
      * - GET /epics/{id} - возвращает эпик по ID
      * - GET /epics/{id}/subtasks - возвращает подзадачи эпика
      */
     private void handleGet(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         if (path.equals("/epics")) {
-            sendText(exchange, gson.toJson(taskManager.getAllEpics()), 200);
+            sendFiltered(exchange, gson, TaskType.EPIC, taskManager::getAllEpics);
         } else if (path.matches("/epics/\\d+")) {
             handleGetEpicById(exchange, path);
         } else if (path.matches("/epics/\\d+/subtasks")) {
@@ -57,11 +66,13 @@ public class EpicHandler extends BaseHttpHandler {
     private void handleGetEpicById(HttpExchange exchange, String path) throws IOException {
         try {
             int id = extractIdFromPath(path);
+            long version = taskManager.getEntityVersion(id); // Меняется и при изменении подзадач эпика
             Epic epic = taskManager.getEpicById(id);
             if (epic == null) {
                 sendNotFound(exchange, "Эпик не найден.");
             } else {
-                sendText(exchange, gson.toJson(epic), 200);
+                sendCached(exchange, "/epics/" + id, version,
+                        () -> gson.toJson(epic).getBytes(StandardCharsets.UTF_8));
             }
         } catch (NumberFormatException e) {
             sendBadRequest(exchange, "ID эпика должен быть числом.");
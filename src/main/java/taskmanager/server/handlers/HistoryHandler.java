@@ -3,12 +3,15 @@ package taskmanager.server.handlers;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import taskmanager.core.managers.TaskManager;
+import taskmanager.server.utils.ResponseCache;
 
 import java.io.IOException;
 
 /**
  * Обработчик HTTP-запросов для получения истории просмотров задач.
  * Поддерживает только GET /history.
+ * Ответ помечается ETag по версии истории, повторный запрос с той же меткой в If-None-Match получает 304.
+ * Сериализованный ответ кешируется до следующего изменения истории.
  */
 public class HistoryHandler extends BaseHttpHandler {
     private final Gson gson;
@@ -18,6 +21,11 @@ public class HistoryHandler extends BaseHttpHandler {
         this.gson = gson;
     }
 
+    public HistoryHandler(TaskManager taskManager, Gson gson, ResponseCache responseCache) {
+        super(taskManager, responseCache);
+        this.gson = gson;
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -25,7 +33,11 @@ public class HistoryHandler extends BaseHttpHandler {
                 sendText(exchange, "{\"error\":\"Метод не поддерживается\"}", 405);
                 return;
             }
-            sendText(exchange, gson.toJson(taskManager.getHistory()), 200);
+            long version = taskManager.getHistoryVersion();
+            if (notModified(exchange, "history", version)) {
+                return;
+            }
+            sendCachedList(exchange, gson, "/history", version, taskManager::getHistory);
         } catch (Exception e) {
             sendServerError(exchange, e);
         }
@@ -3,12 +3,24 @@ package taskmanager.server.handlers;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import taskmanager.core.managers.TaskManager;
+import taskmanager.server.utils.ResponseCache;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
 
 /**
  * Обработчик HTTP-запросов для получения отсортированного списка задач по приоритету.
  * Поддерживает только GET /prioritized.
+ * Необязательные параметры from и to (ISO_LOCAL_DATE_TIME, например 2025-01-01T10:00) ограничивают
+ * ответ задачами, пересекающимися с полуинтервалом [from, to).
+ * GET /prioritized/free-slot?duration=&from=&to= возвращает самое раннее время начала свободного промежутка
+ * продолжительностью duration минут в окне [from, to] или 404, если места нет.
+ * Параметры limit и cursor включают постраничную выдачу в порядке (startTime, id): курсор имеет вид
+ * startTime,id и передается в заголовке X-Next-Cursor; с параметрами from и to не совмещается.
+ * Ответы помечаются ETag по версии данных менеджера, запрос с той же меткой в If-None-Match получает 304.
  */
 public class PrioritizedHandler extends BaseHttpHandler {
     private final Gson gson;
@@ -18,6 +30,11 @@ public class PrioritizedHandler extends BaseHttpHandler {
         this.gson = gson;
     }
 
+    public PrioritizedHandler(TaskManager taskManager, Gson gson, ResponseCache responseCache) {
+        super(taskManager, responseCache);
+        this.gson = gson;
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -25,9 +42,105 @@ public class PrioritizedHandler extends BaseHttpHandler {
                 sendText(exchange, "{\"error\":\"Метод не поддерживается\"}", 405);
                 return;
             }
-            sendText(exchange, gson.toJson(taskManager.getPrioritizedTasks()), 200);
+            long version = taskManager.getVersion(); // До чтения данных, проверка метки - после разбора параметров
+            Map<String, String> params = getQueryParams(exchange);
+            if (exchange.getRequestURI().getPath().endsWith("/free-slot")) {
+                handleFreeSlot(exchange, params, version);
+                return;
+            }
+            if (isPageRequest(params)) {
+                handlePage(exchange, params, version);
+                return;
+            }
+            if (!params.containsKey("from") && !params.containsKey("to")) {
+                if (notModified(exchange, "prioritized", version)) {
+                    return;
+                }
+                sendCachedList(exchange, gson, "/prioritized", version, taskManager::getPrioritizedTasks);
+                return;
+            }
+            LocalDateTime from;
+            LocalDateTime to;
+            try {
+                from = parseTime(params.get("from"));
+                to = parseTime(params.get("to"));
+            } catch (DateTimeParseException e) {
+                sendBadRequest(exchange, "Параметры from и to должны быть в формате yyyy-MM-ddTHH:mm");
+                return;
+            }
+            if (from != null && to != null && !from.isBefore(to)) {
+                sendBadRequest(exchange, "Параметр from должен быть раньше to");
+                return;
+            }
+            if (notModified(exchange, "prioritized", version)) {
+                return;
+            }
+            LocalDateTime rangeFrom = from;
+            LocalDateTime rangeTo = to;
+            sendCachedList(exchange, gson, "/prioritized?from=" + from + "&to=" + to, version,
+                    () -> taskManager.getPrioritizedTasks(rangeFrom, rangeTo));
         } catch (Exception e) {
             sendServerError(exchange, e);
         }
     }
+
+    private void handlePage(HttpExchange exchange, Map<String, String> params, long version) throws IOException {
+        if (params.containsKey("from") || params.containsKey("to")) {
+            sendBadRequest(exchange, "Постраничная выдача не совмещается с параметрами from и to");
+            return;
+        }
+        int limit;
+        LocalDateTime afterStart = null;
+        int afterId = 0;
+        try {
+            limit = parseLimit(params);
+            String cursor = params.get("cursor");
+            if (cursor != null && !cursor.isBlank()) {
+                int separator = cursor.lastIndexOf(',');
+                afterStart = LocalDateTime.parse(cursor.substring(0, separator).trim());
+                afterId = Integer.parseInt(cursor.substring(separator + 1).trim());
+            }
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            sendBadRequest(exchange, "Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE
+                    + ", cursor - в формате startTime,id");
+            return;
+        }
+        if (notModified(exchange, "prioritized", version)) {
+            return;
+        }
+        sendPage(exchange, gson, taskManager.getPrioritizedPage(afterStart, afterId, limit + 1), limit,
+                task -> task.getStartTime() + "," + task.getId());
+    }
+
+    private void handleFreeSlot(HttpExchange exchange, Map<String, String> params,
+                                long version) throws IOException {
+        Duration duration;
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            duration = Duration.ofMinutes(Long.parseLong(params.getOrDefault("duration", "")));
+            from = parseTime(params.get("from"));
+            to = parseTime(params.get("to"));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            sendBadRequest(exchange, "Параметр duration задается в минутах, from и to - в формате yyyy-MM-ddTHH:mm");
+            return;
+        }
+        if (duration.isNegative() || from == null || to == null || to.isBefore(from)) {
+            sendBadRequest(exchange, "Нужны неотрицательный duration и окно from <= to");
+            return;
+        }
+        if (notModified(exchange, "prioritized", version)) {
+            return;
+        }
+        LocalDateTime slot = taskManager.findFreeSlot(duration, from, to);
+        if (slot == null) {
+            sendNotFound(exchange, "Свободный промежуток не найден");
+            return;
+        }
+        sendText(exchange, "{\"startTime\":\"" + slot + "\"}", 200);
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value.trim());
+    }
 }
@@ -5,6 +5,8 @@ import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import taskmanager.core.managers.TaskManager;
 import taskmanager.core.model.Subtask;
+import taskmanager.core.util.TaskType;
+import taskmanager.server.utils.ResponseCache;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -21,6 +23,11 @@ public class SubtaskHandler extends BaseHttpHandler {
         this.gson = gson;
     }
 
+    public SubtaskHandler(TaskManager taskManager, Gson gson, ResponseCache responseCache) {
+        super(taskManager, responseCache);
+        this.gson = gson;
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -38,6 +45,8 @@ public class SubtaskHandler extends BaseHttpHandler {
     /**
      * Обработка GET-запросов:
      * - GET /subtasks - возвращает список всех подзадач
+     * - GET /subtasks?status=... - возвращает только элементы с указанным статусом
+     * - GET /subtasks?limit=...&cursor=... - возвращает страницу по возрастанию id, курсор следующей - в X-Next-Cursor
      * - GET /subtasks/{id} - возвращает подзадачу по ID
      *
      * @param exchange объект HTTP-обмена
@@ -46,15 +55,17 @@ public class SubtaskHandler extends BaseHttpHandler {
     private void handleGet(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         if (path.equals("/subtasks")) {
-            sendText(exchange, gson.toJson(taskManager.getAllSubtasks()), 200);
+            sendFiltered(exchange, gson, TaskType.SUBTASK, taskManager::getAllSubtasks);
         } else {
             try {
                 int id = extractIdFromPath(path);
-                Subtask subtask = taskManager.getSubtaskById(id);
+                long version = taskManager.getEntityVersion(id); // До чтения, чтобы кеш не опережал данные
+                Subtask subtask = taskManager.getSubtaskById(id); // Просмотр попадает в историю и при ответе из кеша
                 if (subtask == null) {
                     sendNotFound(exchange, "Подзадача не найдена.");
                 } else {
-                    sendText(exchange, gson.toJson(subtask), 200);
+                    sendCached(exchange, "/subtasks/" + id, version,
+                            () -> gson.toJson(subtask).getBytes(StandardCharsets.UTF_8));
                 }
             } catch (NumberFormatException e) {
                 sendBadRequest(exchange, "ID подзадачи должен быть числом");
@@ -5,6 +5,8 @@ import com.google.gson.JsonSyntaxException;
 import com.sun.net.httpserver.HttpExchange;
 import taskmanager.core.managers.TaskManager;
 import taskmanager.core.model.Task;
+import taskmanager.core.util.TaskType;
+import taskmanager.server.utils.ResponseCache;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -21,6 +23,11 @@ public class TaskHandler extends BaseHttpHandler {
         this.gson = gson;
     }
 
+    public TaskHandler(TaskManager taskManager, Gson gson, ResponseCache responseCache) {
+        super(taskManager, responseCache);
+        this.gson = gson;
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         try {
@@ -38,6 +45,8 @@ public class TaskHandler extends BaseHttpHandler {
     /**
      * Обработка GET-запросов:
      * - GET /tasks - возвращает список всех задач
+     * - GET /tasks?status=... - возвращает только элементы с указанным статусом
+     * - GET /tasks?limit=...&cursor=... - возвращает страницу по возрастанию id, курсор следующей - в X-Next-Cursor
      * - GET /tasks/{id} - возвращает задачу по ID
      *
      * @param exchange объект HTTP-обмена
@@ -46,15 +55,17 @@ public class TaskHandler extends BaseHttpHandler {
     private void handleGet(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         if (path.equals("/tasks")) {
-            sendText(exchange, gson.toJson(taskManager.getAllTasks()), 200);
+            sendFiltered(exchange, gson, TaskType.TASK, taskManager::getAllTasks);
         } else {
             try {
                 int id = extractIdFromPath(path);
-                Task task = taskManager.getTaskById(id);
+                long version = taskManager.getEntityVersion(id); // До чтения, чтобы кеш не опережал данные
+                Task task = taskManager.getTaskById(id); // Просмотр попадает в историю и при ответе из кеша
                 if (task == null) {
                     sendNotFound(exchange, "Задача не найдена.");
                 } else {
-                    sendText(exchange, gson.toJson(task), 200);
+                    sendCached(exchange, "/tasks/" + id, version,
+                            () -> gson.toJson(task).getBytes(StandardCharsets.UTF_8));
                 }
             } catch (NumberFormatException e) {
                 sendBadRequest(exchange, "ID задачи должен быть числом.");
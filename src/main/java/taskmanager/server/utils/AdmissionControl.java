@@ -0,0 +1,90 @@
+package taskmanager.server.utils;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограничение числа принятых запросов (выполняемых и ожидающих в очереди исполнителя).
+ * Исполнитель-обертка считает запросы в момент постановки в очередь, а не при начале обработки,
+ * поэтому ограничение действует и для пула с очередью. Запрос сверх лимита не ставится в очередь:
+ * он сразу выполняется в отдельном виртуальном потоке, где фильтр отвечает 503 без вызова обработчика.
+ */
+public class AdmissionControl implements Executor {
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>(); // Признак отклоненного запроса
+    private static final byte[] OVERLOADED = "{\"error\":\"Сервер перегружен, повторите запрос позже\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private final Executor delegate;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger(); // Принятые и еще не завершенные запросы
+
+    /**
+     * @param delegate исполнитель принятых запросов
+     * @param maxInFlight максимальное число одновременно принятых запросов
+     */
+    public AdmissionControl(Executor delegate, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Лимит запросов должен быть положительным");
+        }
+        this.delegate = delegate;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void execute(Runnable exchange) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            Thread.ofVirtual().start(() -> {
+                REJECTED.set(Boolean.TRUE);
+                exchange.run();
+            });
+            return;
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    exchange.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet(); // Исполнитель отказал: запрос не будет выполнен
+            throw e;
+        }
+    }
+
+    /**
+     * Фильтр, отвечающий 503 (Service Unavailable) на запросы сверх лимита
+     * @return фильтр для регистрации в каждом контексте сервера
+     */
+    public Filter filter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (REJECTED.get() == null) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, OVERLOADED.length);
+                exchange.getResponseBody().write(OVERLOADED);
+                exchange.close();
+            }
+
+            @Override
+            public String description() {
+                return "Ограничение числа одновременных запросов";
+            }
+        };
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
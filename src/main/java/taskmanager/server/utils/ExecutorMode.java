@@ -0,0 +1,7 @@
+package taskmanager.server.utils;
+
+public enum ExecutorMode {
+    VIRTUAL_THREADS, // Отдельный виртуальный поток на каждый запрос
+    FIXED_POOL, // Пул платформенных потоков фиксированного размера
+    EXTERNAL // Исполнитель, переданный вызывающим кодом
+}
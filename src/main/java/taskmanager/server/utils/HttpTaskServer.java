@@ -2,12 +2,15 @@ package taskmanager.server.utils;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpServer;
+import taskmanager.core.managers.ConcurrentTaskManager;
 import taskmanager.core.managers.TaskManager;
 import taskmanager.core.util.Managers;
 import taskmanager.server.handlers.*;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
@@ -21,6 +24,10 @@ import java.util.logging.Logger;
  * /history - история просмотров задач
  * /prioritized - список задач по приоритету
  * Сервер автоматически добавляет shutdown hook для корректного завершения работы.
+ * Обработчики выполняются параллельно, поэтому менеджер оборачивается в {@link ConcurrentTaskManager}.
+ * По умолчанию каждый запрос обрабатывается в своем виртуальном потоке, поэтому медленные клиенты
+ * и ожидание записи на диск не занимают ограниченный пул; режим задается {@link ExecutorMode}.
+ * Число одновременно принятых запросов ограничено, запросы сверх лимита получают 503 ({@link AdmissionControl}).
  */
 public class HttpTaskServer {
     private static final Logger log = Logger.getLogger(HttpTaskServer.class.getName());
@@ -28,6 +35,13 @@ public class HttpTaskServer {
     private final TaskManager taskManager;
     private Gson gson;
     private HttpServer server;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10_000; // Лимит одновременно принятых запросов по умолчанию
+    private ExecutorMode executorMode = ExecutorMode.VIRTUAL_THREADS; // Способ выполнения обработчиков
+    private int poolSize = 10; // Размер пула в режиме FIXED_POOL
+    private Executor externalExecutor; // Исполнитель в режиме EXTERNAL, не останавливается сервером
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private ExecutorService ownExecutor; // Исполнитель, созданный сервером и останавливаемый в stop()
+    private ResponseCache responseCache = new ResponseCache(); // Кеш готовых ответов, общий для обработчиков
 
     /**
      * Создание сервера на стандартном порту 8080.
@@ -45,37 +59,105 @@ public class HttpTaskServer {
      * @throws IOException если произошла ошибка при создании сервера
      */
     public HttpTaskServer(TaskManager taskManager, int port) throws IOException {
-        this.taskManager = taskManager;
+        this.taskManager = taskManager instanceof ConcurrentTaskManager ? taskManager
+                : new ConcurrentTaskManager(taskManager); // Запросы обрабатываются параллельно
         this.port = port;
         this.gson = new Gson();
         Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
     }
 
+    /**
+     * Выбор режима выполнения обработчиков: виртуальный поток на запрос или пул платформенных потоков.
+     * Настройка применяется при следующем запуске сервера.
+     * @param mode VIRTUAL_THREADS или FIXED_POOL
+     * @param poolSize размер пула для FIXED_POOL (в режиме VIRTUAL_THREADS не используется)
+     */
+    public void setExecutorMode(ExecutorMode mode, int poolSize) {
+        if (mode == ExecutorMode.EXTERNAL) {
+            throw new IllegalArgumentException("Внешний исполнитель задается через setExecutor");
+        }
+        if (mode == ExecutorMode.FIXED_POOL && poolSize <= 0) {
+            throw new IllegalArgumentException("Размер пула должен быть положительным");
+        }
+        this.executorMode = mode;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Использование исполнителя вызывающего кода (режим EXTERNAL).
+     * Сервер не останавливает переданный исполнитель.
+     * @param executor исполнитель обработчиков
+     */
+    public void setExecutor(Executor executor) {
+        this.executorMode = ExecutorMode.EXTERNAL;
+        this.externalExecutor = executor;
+    }
+
+    /**
+     * Ограничение числа одновременно принятых запросов (выполняемых и ожидающих в очереди)
+     * @param maxInFlight лимит, сверх которого запросы получают 503
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Лимит запросов должен быть положительным");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Ограничение кеша готовых ответов (GET /tasks/{id}, /subtasks/{id}, /epics/{id}, /history, /prioritized).
+     * Настройка применяется при следующем запуске сервера.
+     * @param maxEntries максимальное число ответов
+     * @param maxBytes максимальный суммарный объем ответов в байтах
+     */
+    public void setResponseCacheLimits(int maxEntries, long maxBytes) {
+        this.responseCache = new ResponseCache(maxEntries, maxBytes);
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
     /**
      * Запуск HTTP-сервера.
      * Создание HTTP-сервера, регистрация обработчиков и начало прослушивания указанного порта.
-     * Используется пул из 10 потоков для обработки запросов.
+     * Обработчики выполняются согласно выбранному {@link ExecutorMode} с ограничением числа принятых запросов.
      * @throws IOException если сервер не может быть запущен
      */
     public void start() throws IOException {
         if (server == null) {
             server = HttpServer.create(new InetSocketAddress(port), 0);
-            registerHandlers();
-            server.setExecutor(Executors.newFixedThreadPool(10));
+            AdmissionControl admission = new AdmissionControl(createExecutor(), maxInFlight);
+            registerHandlers(admission);
+            server.setExecutor(admission);
             server.start();
             log.info("Сервер запущен на порту:" + " {" + port + "}");
         }
     }
 
+    private Executor createExecutor() {
+        return switch (executorMode) {
+            case VIRTUAL_THREADS -> ownExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            case FIXED_POOL -> ownExecutor = Executors.newFixedThreadPool(poolSize);
+            case EXTERNAL -> externalExecutor;
+        };
+    }
+
     /**
      * Регистрация обработчика для всех эндпоинтов.
+     * @param admission ограничение числа запросов, его фильтр добавляется в каждый контекст
      */
-    private void registerHandlers() {
-        server.createContext("/tasks", new TaskHandler(taskManager, gson));
-        server.createContext("/subtasks", new SubtaskHandler(taskManager, gson));
-        server.createContext("/epics", new EpicHandler(taskManager, gson));
-        server.createContext("/history", new HistoryHandler(taskManager, gson));
-        server.createContext("/prioritized", new PrioritizedHandler(taskManager, gson));
+    private void registerHandlers(AdmissionControl admission) {
+        server.createContext("/tasks", new TaskHandler(taskManager, gson, responseCache))
+                .getFilters().add(admission.filter());
+        server.createContext("/subtasks", new SubtaskHandler(taskManager, gson, responseCache))
+                .getFilters().add(admission.filter());
+        server.createContext("/epics", new EpicHandler(taskManager, gson, responseCache))
+                .getFilters().add(admission.filter());
+        server.createContext("/history", new HistoryHandler(taskManager, gson, responseCache))
+                .getFilters().add(admission.filter());
+        server.createContext("/prioritized", new PrioritizedHandler(taskManager, gson, responseCache))
+                .getFilters().add(admission.filter());
     }
 
     /**
@@ -86,6 +168,10 @@ public class HttpTaskServer {
     public void stop() {
         if (server != null) {
             server.stop(0);
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+                ownExecutor = null;
+            }
             log.info("Сервер остановлен");
             server = null;
         }
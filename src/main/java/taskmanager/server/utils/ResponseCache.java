@@ -0,0 +1,117 @@
+package taskmanager.server.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кеш готовых тел ответов (байты JSON) по ключу "эндпоинт + id".
+ * Каждая запись помечена версией данных менеджера, по которой она построена (версия задачи для ответов
+ * по id, версия расписания или истории для списков): запись с другой версией считается устаревшей
+ * и удаляется при обращении, поэтому после изменения именно этих данных ответ строится заново. Размер ограничен числом записей и суммарным объемом, вытесняются
+ * давно не использованные записи (LRU). Слишком крупные ответы не кешируются.
+ * Методы синхронизированы: кеш общий для всех потоков обработки запросов.
+ */
+public class ResponseCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024; // Число записей по умолчанию
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024; // Суммарный объем по умолчанию
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes; // Ответы крупнее не вытесняют весь кеш и в него не попадают
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Порядок доступа
+    private long bytes; // Суммарный объем тел
+    private long hits;
+    private long misses;
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries максимальное число записей
+     * @param maxBytes максимальный суммарный объем тел в байтах
+     */
+    public ResponseCache(int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Размер кеша должен быть положительным");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.max(1, maxBytes / 8);
+    }
+
+    /**
+     * Тело ответа, построенное для указанной версии данных
+     * @param key эндпоинт и id (например "/tasks/5")
+     * @param version текущая версия данных, от которых зависит ответ
+     * @return байты тела или null, если записи нет или она устарела
+     */
+    public synchronized byte[] get(String key, long version) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version() == version) {
+            hits++;
+            return entry.body();
+        }
+        if (entry != null) {
+            remove(key); // Данные изменились после построения записи
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Сохранение тела ответа с вытеснением давно не использованных записей
+     * @param key эндпоинт и id
+     * @param version версия данных, прочитанная до построения ответа
+     * @param body байты тела (не копируются и не должны меняться)
+     */
+    public synchronized void put(String key, long version, byte[] body) {
+        if (body.length > maxEntryBytes) {
+            return;
+        }
+        Entry old = entries.get(key);
+        if (old != null && old.version() > version) {
+            return; // Параллельный запрос уже сохранил ответ для более новой версии
+        }
+        if (old != null) {
+            remove(key);
+        }
+        entries.put(key, new Entry(version, body));
+        bytes += body.length;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().getValue().body().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.body().length;
+        }
+    }
+
+    /**
+     * Тело ответа и версия данных, для которой оно построено
+     */
+    private record Entry(long version, byte[] body) {
+    }
+}
@@ -0,0 +1,68 @@
+package taskmanager.core.managers;
+
+import org.junit.jupiter.api.Test;
+import taskmanager.core.model.Task;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты ограниченной истории просмотров {@link BoundedHistoryManager}.
+ */
+class BoundedHistoryManagerTest {
+
+    private Task task(int id) {
+        Task task = new Task("T" + id, "D");
+        task.setId(id);
+        return task;
+    }
+
+    private List<Integer> ids(HistoryManager manager) {
+        return manager.getHistory().stream().map(Task::getId).toList();
+    }
+
+    /**
+     * Проверка вытеснения самого старого просмотра и переноса повторного просмотра в конец.
+     */
+    @Test
+    void testEvictsOldestAndMovesRepeatedViewToEnd() {
+        BoundedHistoryManager history = new BoundedHistoryManager(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        history.add(task(1));
+        assertEquals(List.of(2, 3, 1), ids(history));
+
+        history.add(task(4));
+        assertEquals(List.of(3, 1, 4), ids(history));
+
+        history.remove(1);
+        history.add(task(5));
+        assertEquals(List.of(3, 4, 5), ids(history));
+        assertThrows(UnsupportedOperationException.class, () -> history.getHistory().clear());
+    }
+
+    /**
+     * Сравнение со списочной историей на случайной последовательности просмотров и удалений.
+     */
+    @Test
+    void testMatchesUnboundedHistoryWithinCapacity() {
+        Random random = new Random(7);
+        BoundedHistoryManager bounded = new BoundedHistoryManager(64);
+        HistoryManager reference = new InMemoryHistoryManager();
+        for (int i = 0; i < 10_000; i++) {
+            int id = random.nextInt(64);
+            if (random.nextInt(4) == 0) {
+                bounded.remove(id);
+                reference.remove(id);
+            } else {
+                Task task = task(id);
+                bounded.add(task);
+                reference.add(task);
+            }
+            assertEquals(ids(reference), ids(bounded));
+        }
+    }
+}
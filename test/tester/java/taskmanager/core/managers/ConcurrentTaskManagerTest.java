@@ -0,0 +1,148 @@
+package taskmanager.core.managers;
+
+import org.junit.jupiter.api.Test;
+import taskmanager.core.model.Epic;
+import taskmanager.core.model.Subtask;
+import taskmanager.core.model.Task;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты потокобезопасной обертки {@link ConcurrentTaskManager}.
+ */
+class ConcurrentTaskManagerTest {
+
+    /**
+     * Параллельные добавления, обновления и чтения не теряют задачи и не ломают статус эпика.
+     */
+    @Test
+    void testParallelWritesAndReads() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(new InMemoryTaskManager());
+        Epic epic = new Epic("E", "D");
+        manager.addEpic(epic);
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    Task task = new Task("T" + i, "D");
+                    manager.addTask(task);
+                    manager.getTaskById(task.getId()); // Чтение с записью в историю
+                    Subtask subtask = new Subtask("S" + i, "D", Status.DONE, epic.getId(), null, null);
+                    manager.addSubtask(subtask);
+                    manager.getAllTasks();
+                    manager.getHistory();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        List<Task> tasks = manager.getAllTasks();
+        assertEquals(threads * perThread, tasks.size());
+        Set<Integer> ids = new HashSet<>();
+        tasks.forEach(task -> ids.add(task.getId()));
+        assertEquals(tasks.size(), ids.size()); // id не повторяются
+        assertEquals(threads * perThread, manager.getAllSubtasksByEpicId(epic.getId()).size());
+        assertEquals(Status.DONE, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(threads * perThread + 1, manager.getHistory().size());
+    }
+
+    /**
+     * Без изменений читатели получают один и тот же неизменяемый снимок, после изменения - новый.
+     */
+    @Test
+    void testSnapshotsArePublishedPerVersion() {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(new InMemoryTaskManager());
+        manager.addTask(new Task("T1", "D1"));
+        List<Task> first = manager.getAllTasks();
+        assertSame(first, manager.getAllTasks()); // Повторное чтение без копирования
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new Task("X", "X")));
+
+        long version = manager.getVersion();
+        manager.addTask(new Task("T2", "D2"));
+        assertTrue(manager.getVersion() > version);
+        List<Task> second = manager.getAllTasks();
+        assertNotSame(first, second);
+        assertEquals(1, first.size()); // Старый снимок не меняется
+        assertEquals(2, second.size());
+    }
+
+    /**
+     * Снимки строятся по версиям обертываемого менеджера, поэтому видят и изменения, внесенные в него напрямую.
+     */
+    @Test
+    void testSnapshotsFollowDelegateVersions() {
+        InMemoryTaskManager delegate = new InMemoryTaskManager();
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(delegate);
+        manager.addTask(new Task("T1", "D1"));
+        List<Task> tasks = manager.getAllTasks();
+        List<Epic> epics = manager.getAllEpics();
+
+        delegate.addEpic(new Epic("E1", "D1"));
+        assertSame(tasks, manager.getAllTasks()); // Изменение эпиков не сбрасывает снимок задач
+        assertEquals(1, manager.getAllEpics().size());
+        assertNotSame(epics, manager.getAllEpics());
+
+        long taskVersion = manager.getVersion(TaskType.TASK);
+        delegate.addTask(new Task("T2", "D2"));
+        assertTrue(manager.getVersion(TaskType.TASK) > taskVersion);
+        assertEquals(2, manager.getAllTasks().size());
+    }
+
+    /**
+     * Снимок хранит копии задач: изменение эпика на месте не меняет уже выданный снимок,
+     * а копии неизменившихся задач переходят в новый снимок без повторного копирования.
+     */
+    @Test
+    void testSnapshotsHoldCopiesAndShareUnchangedEntries() {
+        InMemoryTaskManager delegate = new InMemoryTaskManager();
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(delegate);
+        Epic epic = new Epic("E1", "D1");
+        manager.addEpic(epic);
+        Task task = new Task("T1", "D1", Status.NEW, Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        manager.addTask(task);
+        List<Epic> epics = manager.getAllEpics();
+        List<Task> tasks = manager.getAllTasks();
+        Epic epicCopy = epics.get(0);
+        assertNotSame(epic, epicCopy);
+        assertEquals(Status.NEW, epicCopy.getStatus());
+
+        manager.addSubtask(new Subtask("S1", "D1", Status.DONE, epic.getId(), null, null));
+        assertEquals(Status.DONE, epic.getStatus()); // Эпик менеджера изменен на месте
+        assertEquals(Status.NEW, epicCopy.getStatus()); // Выданный снимок не изменился
+        assertTrue(epicCopy.getSubtaskIds().isEmpty());
+        assertEquals(Status.DONE, manager.getAllEpics().get(0).getStatus());
+        assertSame(tasks, manager.getAllTasks()); // Задачи не менялись - тот же список
+
+        manager.addTask(new Task("T2", "D2"));
+        List<Task> updated = manager.getAllTasks();
+        assertEquals(2, updated.size());
+        assertSame(tasks.get(0), updated.get(0)); // Копия неизменившейся задачи общая со старым снимком
+        assertSame(tasks.get(0), manager.getPrioritizedTasks().get(0));
+
+        delegate.deleteTaskById(task.getId()); // Изменение напрямую учитывается по разнице при чтении
+        assertEquals(List.of("T2"), manager.getAllTasks().stream().map(Task::getTitle).toList());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        assertEquals(2, updated.size());
+
+        for (int i = 0; i < 5_000; i++) { // Больше изменений, чем помнит индекс: снимок строится заново
+            delegate.addTask(new Task("N" + i, "D"));
+        }
+        assertEquals(5_001, manager.getAllTasks().size());
+    }
+}
@@ -3,10 +3,31 @@ package taskmanager.core.managers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import taskmanager.core.exceptions.ManagerSaveException;
+import taskmanager.core.model.*;
+import taskmanager.core.util.FsyncPolicy;
+import taskmanager.core.util.PersistenceMode;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.StorageFormat;
+import taskmanager.core.util.TaskType;
 
-
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 
 /**
@@ -36,4 +57,611 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
             FileBackedTaskManager.loadFromFile(invalidFile);
         });
     }
+
+    /**
+     * Проверка режима журнала: каждое изменение дописывает одну строку,
+     * а новый менеджер восстанавливает состояние с теми же id.
+     */
+    @Test
+    public void testJournalModeReplaysChanges() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File journalFile = new File(path + ".journal");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+
+        Task task = new Task("T1", "D1");
+        journaled.addTask(task);
+        Epic epic = new Epic("E1", "D1");
+        journaled.addEpic(epic);
+        Subtask subtask = new Subtask("S1", "D1", Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), baseTime.plusHours(1));
+        journaled.addSubtask(subtask);
+        task.setStatus(Status.IN_PROGRESS);
+        journaled.updateTask(task);
+        Task removed = new Task("T2", "D2");
+        journaled.addTask(removed);
+        journaled.deleteTaskById(removed.getId());
+
+        assertEquals(6, Files.readAllLines(journalFile.toPath()).size()); // Одна запись на изменение
+        assertEquals(0, tempFile.length()); // Основной файл не перезаписывается
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(Status.IN_PROGRESS, restored.getTaskById(task.getId()).getStatus());
+        assertNull(restored.getTaskById(removed.getId()));
+        assertEquals(subtask.getEpicId(), restored.getSubtaskById(subtask.getId()).getEpicId());
+        assertEquals(Status.DONE, restored.getEpicById(epic.getId()).getStatus());
+
+        Task next = new Task("T3", "D3");
+        restored.addTask(next);
+        assertEquals(removed.getId() + 1, next.getId()); // Счетчик id продолжается после загруженных задач
+    }
+
+    /**
+     * Проверка снимка: после превышения порога журнал усекается,
+     * а загрузка собирает состояние из снимка и хвоста журнала.
+     */
+    @Test
+    public void testSnapshotTruncatesJournal() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File journalFile = new File(path + ".journal");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        journaled.setSnapshotThreshold(3, Long.MAX_VALUE);
+
+        for (int i = 0; i < 3; i++) {
+            journaled.addTask(new Task("T" + i, "D"));
+        }
+        journaled.snapshot().join(); // Ожидание фоновой записи снимка, запущенной по порогу
+        Task tail = new Task("Tail", "D");
+        journaled.addTask(tail);
+
+        assertEquals(1, Files.readAllLines(journalFile.toPath()).size()); // В журнале остался только хвост
+        assertFalse(new File(path + ".journal.1").exists()); // Покрытый снимком сегмент удален
+        assertTrue(Files.readString(tempFile.toPath()).contains("T2"));
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(4, restored.getAllTasks().size());
+        assertEquals("Tail", restored.getTaskById(tail.getId()).getTitle());
+    }
+
+    /**
+     * Проверка, что снимок, собранный в фоне из прежнего снимка и сегментов журнала,
+     * совпадает с состоянием менеджера на момент снимка, включая историю и счетчик id.
+     */
+    @Test
+    public void testBackgroundSnapshotMatchesState() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        new File(path + ".journal").deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        Epic epic = new Epic("E1", "D1");
+        journaled.addEpic(epic);
+        journaled.addSubtask(new Subtask("S1", "D1", Status.DONE, epic.getId(), null, null));
+        Task kept = new Task("T1", "D1");
+        journaled.addTask(kept);
+        journaled.snapshot().join();
+
+        Task removed = new Task("T2", "D2");
+        journaled.addTask(removed);
+        kept.setStatus(Status.IN_PROGRESS);
+        journaled.updateTask(kept);
+        journaled.deleteTaskById(removed.getId());
+        journaled.getTaskById(kept.getId());
+        journaled.getEpicById(epic.getId());
+        journaled.snapshot().join();
+        assertFalse(new File(path + ".journal.2").exists()); // Оба сегмента покрыты снимком
+
+        File exported = File.createTempFile("task-manager-export", ".csv");
+        exported.deleteOnExit();
+        journaled.exportCsv(exported);
+        assertEquals(new HashSet<>(Files.readAllLines(exported.toPath())),
+                new HashSet<>(Files.readAllLines(tempFile.toPath())));
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.SNAPSHOT);
+        assertEquals(List.of(kept.getId(), epic.getId()),
+                restored.getHistory().stream().map(Task::getId).toList());
+        Task next = new Task("T3", "D3");
+        restored.addTask(next);
+        assertEquals(removed.getId() + 1, next.getId());
+    }
+
+    /**
+     * Проверка группового коммита: изменения пишутся фоновым потоком,
+     * после завершения future сохранения все они видны при загрузке.
+     */
+    @Test
+    public void testAsyncJournalPersistsAfterFuture() {
+        String path = tempFile.getAbsolutePath();
+        new File(path + ".journal").deleteOnExit();
+        FileBackedTaskManager async = new FileBackedTaskManager(path, PersistenceMode.ASYNC_JOURNAL);
+        async.setGroupCommit(Duration.ofMillis(5), 16);
+        for (int i = 0; i < 100; i++) {
+            async.addTask(new Task("T" + i, "D"));
+        }
+        async.whenPersisted().join();
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(100, restored.getAllTasks().size());
+        async.close();
+    }
+
+    /**
+     * Проверка бинарного формата: файл распознается по заголовку при загрузке,
+     * а экспорт в CSV остается доступным.
+     */
+    @Test
+    public void testBinaryFormatRoundTrip() throws IOException {
+        manager.setStorageFormat(StorageFormat.BINARY);
+        Epic epic = new Epic("E1", "Описание, с запятой");
+        manager.addEpic(epic);
+        Subtask subtask = new Subtask("S1", "D1", Status.IN_PROGRESS, epic.getId(),
+                Duration.ofMinutes(45), baseTime);
+        manager.addSubtask(subtask);
+
+        byte[] header = Files.readAllBytes(tempFile.toPath());
+        assertEquals('K', header[0]);
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(tempFile.getAbsolutePath());
+        Subtask loaded = restored.getSubtaskById(subtask.getId());
+        assertEquals(baseTime, loaded.getStartTime());
+        assertEquals(Duration.ofMinutes(45), loaded.getDuration());
+        assertEquals(Status.IN_PROGRESS, restored.getEpicById(epic.getId()).getStatus());
+        assertEquals("Описание, с запятой", restored.getEpicById(epic.getId()).getDescription());
+
+        File csv = File.createTempFile("task-manager-export", ".csv");
+        csv.deleteOnExit();
+        restored.exportCsv(csv);
+        assertTrue(Files.readString(csv.toPath()).startsWith("id,type,name"));
+        assertEquals(1, new FileBackedTaskManager(csv.getAbsolutePath()).getAllSubtasks().size());
+    }
+
+    /**
+     * Проверка параллельной загрузки: результат совпадает с последовательной,
+     * а подзадачи связываются с эпиками, записанными в других частях файла.
+     */
+    @Test
+    public void testParallelLoadMatchesSequential() {
+        for (int i = 0; i < 200; i++) {
+            Epic epic = new Epic("E" + i, "D");
+            manager.addEpic(epic);
+            manager.addSubtask(new Subtask("S" + i, "D", Status.DONE, epic.getId(),
+                    Duration.ofMinutes(10), baseTime.plusHours(i)));
+            manager.addTask(new Task("T" + i, "D"));
+        }
+        // Нулевой порог - принудительная параллельная загрузка маленького файла
+        FileBackedTaskManager parallel = new FileBackedTaskManager(tempFile.getAbsolutePath(),
+                PersistenceMode.SNAPSHOT, 0);
+        assertEquals(200, parallel.getAllEpics().size());
+        assertEquals(200, parallel.getAllTasks().size());
+        assertEquals(200, parallel.getAllSubtasks().size());
+        parallel.getAllEpics().forEach(epic -> {
+            assertEquals(1, epic.getSubtaskIds().size());
+            assertEquals(Status.DONE, epic.getStatus());
+        });
+    }
+
+    /**
+     * Проверка режима сегментов: изменение перезаписывает только сегмент измененного id.
+     */
+    @Test
+    public void testSegmentedModeWritesOnlyDirtySegments() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File segments = new File(path + ".segments");
+        FileBackedTaskManager segmented = new FileBackedTaskManager(path, PersistenceMode.SEGMENTED);
+        List<Task> added = new ArrayList<>();
+        for (int i = 0; i < FileBackedTaskManager.SEGMENT_SIZE * 2; i++) {
+            Task task = new Task("T" + i, "D");
+            segmented.addTask(task);
+            added.add(task);
+        }
+        File first = new File(segments, "segment-0");
+        assertTrue(first.delete()); // Сегмент без изменений не должен создаваться заново
+
+        Task last = added.get(added.size() - 1);
+        last.setStatus(Status.DONE);
+        segmented.updateTask(last);
+        segmented.deleteTaskById(added.get(added.size() - 2).getId());
+        assertFalse(first.exists());
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.SEGMENTED);
+        assertEquals(Status.DONE, restored.getTaskById(last.getId()).getStatus());
+        assertNull(restored.getTaskById(added.get(added.size() - 2).getId()));
+        File[] files = segments.listFiles();
+        for (File file : files) {
+            file.deleteOnExit();
+        }
+        segments.deleteOnExit();
+    }
+
+    /**
+     * Проверка, что изменение одной задачи в режиме сегментов записывает только ее сегмент,
+     * а служебный файл с историей не переписывается; после удаления пишется только счетчик id.
+     */
+    @Test
+    public void testSegmentedUpdateWritesOnlyItsSegment() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File segments = new File(path + ".segments");
+        FileBackedTaskManager segmented = new FileBackedTaskManager(path, PersistenceMode.SEGMENTED);
+        List<Task> added = new ArrayList<>();
+        for (int i = 0; i < FileBackedTaskManager.SEGMENT_SIZE * 3; i++) {
+            Task task = new Task("T" + i, "D");
+            segmented.addTask(task);
+            segmented.getTaskById(task.getId()); // Длинная история просмотров
+            added.add(task);
+        }
+        segmented.close();
+        Map<String, byte[]> before = readDirectory(segments);
+        File meta = new File(segments, "meta");
+        assertTrue(meta.length() > 0);
+
+        Task updated = added.get(FileBackedTaskManager.SEGMENT_SIZE + 1);
+        updated.setStatus(Status.DONE);
+        segmented.updateTask(updated);
+        Map<String, byte[]> afterUpdate = readDirectory(segments);
+        Set<String> changed = changedFiles(before, afterUpdate);
+        assertEquals(Set.of("segment-" + updated.getId() / FileBackedTaskManager.SEGMENT_SIZE), changed);
+        long written = changed.stream().mapToLong(name -> afterUpdate.get(name).length).sum();
+        assertEquals(new File(segments, changed.iterator().next()).length(), written);
+
+        Task last = new Task("X", "D");
+        segmented.addTask(last);
+        Map<String, byte[]> afterAdd = readDirectory(segments);
+        segmented.deleteTaskById(last.getId()); // Счетчик id пишется отдельно, без истории
+        Map<String, byte[]> afterDelete = readDirectory(segments);
+        Set<String> deleteChanged = changedFiles(afterAdd, afterDelete);
+        assertEquals(Set.of("segment-" + last.getId() / FileBackedTaskManager.SEGMENT_SIZE, "next-id"),
+                deleteChanged);
+        assertTrue(afterDelete.get("next-id").length < meta.length());
+        segmented.deleteTaskById(added.get(0).getId());
+        assertArrayEquals(afterDelete.get("next-id"), readDirectory(segments).get("next-id"));
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.SEGMENTED); // Без close
+        assertEquals(added.size() - 1, restored.getHistory().size());
+        Task next = new Task("N", "D");
+        restored.addTask(next);
+        assertEquals(last.getId() + 1, next.getId());
+        for (File file : segments.listFiles()) {
+            file.deleteOnExit();
+        }
+        segments.deleteOnExit();
+    }
+
+    /**
+     * Проверка, что временный файл сегмента, оставшийся от прерванной записи, не загружается
+     * и удаляется при запуске: удаленная задача не возвращается.
+     */
+    @Test
+    public void testStaleSegmentTempFileIsIgnored() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File segments = new File(path + ".segments");
+        FileBackedTaskManager segmented = new FileBackedTaskManager(path, PersistenceMode.SEGMENTED);
+        Task kept = new Task("T1", "D1");
+        segmented.addTask(kept);
+        Task removed = new Task("T2", "D2");
+        segmented.addTask(removed);
+        File segment = new File(segments, "segment-0");
+        byte[] stale = Files.readAllBytes(segment.toPath()); // Старая версия сегмента с удаляемой задачей
+        segmented.deleteTaskById(removed.getId());
+        kept.setTitle("T1 new");
+        segmented.updateTask(kept);
+        segmented.close();
+        File temp = new File(segments, "segment-0.tmp"); // Запись прервана до переименования
+        Files.write(temp.toPath(), stale);
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.SEGMENTED);
+        assertEquals(List.of(kept.getId()), restored.getAllTasks().stream().map(Task::getId).toList());
+        assertEquals("T1 new", restored.getTaskById(kept.getId()).getTitle());
+        assertFalse(temp.exists());
+        for (File file : segments.listFiles()) {
+            file.deleteOnExit();
+        }
+        segments.deleteOnExit();
+    }
+
+    private static Map<String, byte[]> readDirectory(File directory) throws IOException {
+        Map<String, byte[]> contents = new HashMap<>();
+        for (File file : directory.listFiles()) {
+            contents.put(file.getName(), Files.readAllBytes(file.toPath()));
+        }
+        return contents;
+    }
+
+    private static Set<String> changedFiles(Map<String, byte[]> before, Map<String, byte[]> after) {
+        Set<String> changed = new HashSet<>(before.keySet());
+        changed.removeAll(after.keySet()); // Удаленные файлы
+        after.forEach((name, content) -> {
+            if (!Arrays.equals(before.get(name), content)) {
+                changed.add(name);
+            }
+        });
+        return changed;
+    }
+
+    /**
+     * Проверка восстановления после сбоя: оборванная последняя запись журнала отбрасывается,
+     * файл усекается, а все целые записи проигрываются.
+     */
+    @Test
+    public void testTornJournalTailIsTruncated() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File journalFile = new File(path + ".journal");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        journaled.setFsyncPolicy(FsyncPolicy.ALWAYS, Duration.ZERO);
+        Task first = new Task("T1", "D1");
+        journaled.addTask(first);
+        Task second = new Task("T2", "D2");
+        journaled.addTask(second);
+        journaled.close();
+
+        long validLength = journalFile.length();
+        byte[] torn = Files.readAllBytes(journalFile.toPath());
+        Files.write(journalFile.toPath(), java.util.Arrays.copyOf(torn, torn.length + 20)); // Недописанный хвост
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(2, restored.getAllTasks().size());
+        assertEquals(validLength, journalFile.length());
+
+        // Повреждение содержимого второй записи: контрольная сумма не совпадает, запись отбрасывается
+        List<String> lines = Files.readAllLines(journalFile.toPath());
+        lines.set(1, lines.get(1).replace("T2", "X2"));
+        Files.write(journalFile.toPath(), lines);
+        restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(1, restored.getAllTasks().size());
+        assertEquals("T1", restored.getTaskById(first.getId()).getTitle());
+    }
+
+    /**
+     * Проверка, что многострочное описание и обратная косая черта переживают запись в журнал
+     * и не приводят к отбрасыванию последующих записей.
+     */
+    @Test
+    public void testMultilineDescriptionSurvivesJournalReplay() {
+        String path = tempFile.getAbsolutePath();
+        new File(path + ".journal").deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        Task multiline = new Task("a\\b", "line1\nline2\r\nline3");
+        journaled.addTask(multiline);
+        journaled.addTask(new Task("T2", "D2"));
+        journaled.addTask(new Task("T3", "D3"));
+        journaled.close();
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(3, restored.getAllTasks().size());
+        Task loaded = restored.getTaskById(multiline.getId());
+        assertEquals("line1\nline2\r\nline3", loaded.getDescription());
+        assertEquals("a\\b", loaded.getTitle());
+    }
+
+    /**
+     * Проверка, что повреждение закрытого сегмента журнала, за которым есть более новые записи,
+     * не пропускается молча: загрузка завершается ошибкой, а сегмент не усекается.
+     */
+    @Test
+    public void testCorruptSealedJournalSegmentFailsReplay() throws IOException {
+        String path = tempFile.getAbsolutePath();
+        File journalFile = new File(path + ".journal");
+        File sealed = new File(path + ".journal.1");
+        journalFile.deleteOnExit();
+        sealed.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        journaled.addTask(new Task("T1", "D1"));
+        journaled.addTask(new Task("T2", "D2"));
+        journaled.close();
+        assertTrue(journalFile.renameTo(sealed)); // Закрытый сегмент, как после ротации
+        journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        journaled.addTask(new Task("T3", "D3"));
+        journaled.close();
+        assertEquals(3, new FileBackedTaskManager(path, PersistenceMode.JOURNAL).getAllTasks().size());
+
+        List<String> lines = Files.readAllLines(sealed.toPath());
+        lines.set(0, lines.get(0).replace("T1", "X1"));
+        Files.write(sealed.toPath(), lines);
+        long sealedLength = sealed.length();
+        assertThrows(ManagerSaveException.class, () -> new FileBackedTaskManager(path, PersistenceMode.JOURNAL));
+        assertEquals(sealedLength, sealed.length());
+
+        // Если закрытый сегмент самый новый, его оборванный хвост по-прежнему отбрасывается
+        lines.set(0, lines.get(0).replace("X1", "T1"));
+        Files.write(sealed.toPath(), lines);
+        Files.delete(journalFile.toPath());
+        Files.write(sealed.toPath(), "0badc0de PUT,".getBytes(), java.nio.file.StandardOpenOption.APPEND);
+        assertEquals(2, new FileBackedTaskManager(path, PersistenceMode.JOURNAL).getAllTasks().size());
+        assertEquals(sealedLength, sealed.length());
+    }
+
+    /**
+     * Проверка, что закрытый сегмент с многострочным описанием не считается поврежденным:
+     * менеджер запускается и загружает все записи сегмента и активного файла.
+     */
+    @Test
+    public void testSealedSegmentWithMultilineRecordReplays() {
+        String path = tempFile.getAbsolutePath();
+        File journalFile = new File(path + ".journal");
+        File sealed = new File(path + ".journal.1");
+        journalFile.deleteOnExit();
+        sealed.deleteOnExit();
+        FileBackedTaskManager journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        Task multiline = new Task("T1", "line1\nline2");
+        journaled.addTask(multiline);
+        journaled.addTask(new Task("T2", "D2"));
+        journaled.close();
+        assertTrue(journalFile.renameTo(sealed)); // Закрытый сегмент, как после ротации
+        journaled = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        journaled.addTask(new Task("T3", "D3"));
+        journaled.close();
+
+        FileBackedTaskManager restored = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        assertEquals(3, restored.getAllTasks().size());
+        assertEquals("line1\nline2", restored.getTaskById(multiline.getId()).getDescription());
+    }
+
+    /**
+     * Проверка политики INTERVAL: запись внутри интервала сбрасывается на диск таймером,
+     * даже если следующих записей нет.
+     */
+    @Test
+    public void testIntervalFsyncSyncsWithoutLaterWrites() throws Exception {
+        File journalFile = new File(tempFile.getAbsolutePath() + ".journal");
+        journalFile.deleteOnExit();
+        TaskJournal journal = new TaskJournal(journalFile.getAbsolutePath());
+        journal.setFsyncPolicy(FsyncPolicy.INTERVAL, Duration.ofMillis(200));
+        journal.append(TaskJournal.Operation.DELETE, "1");
+        assertTrue(journal.hasUnsyncedWrites()); // Интервал с прошлого сброса еще не прошел
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (journal.hasUnsyncedWrites() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(journal.hasUnsyncedWrites());
+        journal.close();
+    }
+
+    /**
+     * Проверка, что снимок пишется через временный файл и поврежденная бинарная запись не загружается.
+     */
+    @Test
+    public void testAtomicSaveAndBinaryChecksum() throws IOException {
+        manager.setStorageFormat(StorageFormat.BINARY);
+        Task first = new Task("T1", "D1");
+        manager.addTask(first);
+        manager.addTask(new Task("T2", "D2"));
+        assertFalse(new File(tempFile.getAbsolutePath() + ".tmp").exists()); // Временный файл переименован
+
+        byte[] content = Files.readAllBytes(tempFile.toPath());
+        int title = new String(content, java.nio.charset.StandardCharsets.ISO_8859_1).lastIndexOf("T2");
+        content[title] ^= 1; // Изменение байта внутри последней записи задачи
+        Files.write(tempFile.toPath(), content);
+        FileBackedTaskManager restored = new FileBackedTaskManager(tempFile.getAbsolutePath());
+        assertEquals(1, restored.getAllTasks().size()); // Загружаются только записи до поврежденной
+        assertEquals("T1", restored.getTaskById(first.getId()).getTitle());
+    }
+
+    /**
+     * Проверка, что запись с верной контрольной суммой, но неизвестным типом или длиной истории
+     * вызывает ошибку формата, а не выход за границы массива.
+     */
+    @Test
+    public void testBinaryRecordWithInvalidValuesIsFormatError() throws IOException {
+        ByteArrayOutputStream task = new ByteArrayOutputStream();
+        DataOutputStream fields = new DataOutputStream(task);
+        fields.writeByte(TaskType.values().length); // Тип из более новой версии формата
+        fields.writeInt(1);
+        fields.writeByte(0);
+        fields.writeInt(-1);
+        fields.writeLong(Long.MIN_VALUE);
+        fields.writeLong(Long.MIN_VALUE);
+        assertThrows(IOException.class, () -> readRecord(task.toByteArray()));
+
+        ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+        fields = new DataOutputStream(metadata);
+        fields.writeByte(BinaryTaskFormat.METADATA_TYPE);
+        fields.writeInt(10);
+        fields.writeInt(-5); // Отрицательная длина истории
+        assertThrows(IOException.class, () -> readRecord(metadata.toByteArray()));
+
+        Files.write(tempFile.toPath(), binaryFile(task.toByteArray()));
+        FileBackedTaskManager restored = new FileBackedTaskManager(tempFile.getAbsolutePath());
+        assertTrue(restored.getAllTasks().isEmpty()); // Ошибка формата - чистая ошибка загрузки
+    }
+
+    private static void readRecord(byte[] record) throws IOException {
+        BinaryTaskFormat.read(new DataInputStream(new ByteArrayInputStream(binaryFile(record))),
+                task -> {
+                }, metadata -> {
+                });
+    }
+
+    private static byte[] binaryFile(byte[] record) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        BinaryTaskFormat.writeHeader(out);
+        out.writeInt(record.length);
+        out.write(record);
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        out.writeInt((int) crc.getValue());
+        return file.toByteArray();
+    }
+
+    /**
+     * Проверка, что история просмотров и счетчик id переживают перезапуск во всех режимах сохранения.
+     */
+    @Test
+    public void testHistoryAndNextIdSurviveRestart() {
+        String path = tempFile.getAbsolutePath();
+        new File(path + ".journal").deleteOnExit();
+        for (PersistenceMode mode : List.of(PersistenceMode.SNAPSHOT, PersistenceMode.JOURNAL,
+                PersistenceMode.SEGMENTED)) {
+            FileBackedTaskManager first = new FileBackedTaskManager(path, mode);
+            Task task = new Task("T1", "D1");
+            first.addTask(task);
+            Epic epic = new Epic("E1", "D1");
+            first.addEpic(epic);
+            Task last = new Task("T2", "D2");
+            first.addTask(last);
+            first.getEpicById(epic.getId());
+            first.getTaskById(task.getId());
+            first.deleteTaskById(last.getId()); // Наибольший id удален, но не должен выдаваться повторно
+            first.close();
+
+            FileBackedTaskManager restored = new FileBackedTaskManager(path, mode);
+            assertEquals(List.of(epic.getId(), task.getId()),
+                    restored.getHistory().stream().map(Task::getId).toList(), mode.name());
+            Task next = new Task("T3", "D3");
+            restored.addTask(next);
+            assertEquals(last.getId() + 1, next.getId(), mode.name());
+            restored.close();
+            restored.deleteAllTasks();
+            restored.deleteAllEpics();
+            restored.close();
+        }
+        File segments = new File(path + ".segments");
+        File[] files = segments.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.deleteOnExit();
+            }
+        }
+        segments.deleteOnExit();
+    }
+
+    /**
+     * Проверка, что пакетные операции сохраняются во всех режимах и восстанавливаются после перезапуска.
+     */
+    @Test
+    public void testBatchOperationsArePersisted() {
+        String path = tempFile.getAbsolutePath();
+        new File(path + ".journal").deleteOnExit();
+        for (PersistenceMode mode : List.of(PersistenceMode.SNAPSHOT, PersistenceMode.JOURNAL,
+                PersistenceMode.SEGMENTED)) {
+            FileBackedTaskManager manager = new FileBackedTaskManager(path, mode);
+            Epic epic = new Epic("E1", "D1");
+            manager.addEpic(epic);
+            Subtask subtask = new Subtask("S1", "D1", Status.DONE, epic.getId(), null, null);
+            Task kept = new Task("T1", "D1");
+            Task removed = new Task("T2", "D2");
+            manager.addAll(List.of(subtask, kept, removed));
+            kept.setStatus(Status.IN_PROGRESS);
+            manager.updateAll(List.of(kept));
+            manager.deleteAll(List.of(removed.getId()));
+            manager.close();
+
+            FileBackedTaskManager restored = new FileBackedTaskManager(path, mode);
+            assertEquals(List.of(kept), restored.getAllTasks(), mode.name());
+            assertEquals(Status.IN_PROGRESS, restored.getTaskById(kept.getId()).getStatus(), mode.name());
+            assertEquals(Status.DONE, restored.getEpicById(epic.getId()).getStatus(), mode.name());
+
+            restored.deleteAll(List.of(epic.getId(), kept.getId()));
+            restored.close();
+            FileBackedTaskManager empty = new FileBackedTaskManager(path, mode);
+            assertTrue(empty.getAllSubtasks().isEmpty() && empty.getAllTasks().isEmpty(), mode.name());
+            empty.close();
+        }
+        File segments = new File(path + ".segments");
+        File[] files = segments.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.deleteOnExit();
+            }
+        }
+        segments.deleteOnExit();
+    }
 }
@@ -2,8 +2,10 @@ package taskmanager.core.managers;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import taskmanager.core.exceptions.TimeConflictException;
 import taskmanager.core.model.*;
 import taskmanager.core.util.Status;
+import taskmanager.core.util.TaskType;
 import taskmanager.core.util.TestData;
 
 import java.time.Duration;
@@ -111,4 +113,259 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         List<Task> prioritized = tm.getPrioritizedTasks();
         assertEquals(Arrays.asList(t2, t3, t1, t4), prioritized);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEpicStatusFollowsSubtaskTransitions() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        Epic epic = new Epic("E1", "D1");
+        tm.addEpic(epic);
+        Subtask s1 = new Subtask("S1", "D1", Status.NEW, epic.getId(), null, null);
+        Subtask s2 = new Subtask("S2", "D2", Status.NEW, epic.getId(), null, null);
+        tm.addSubtask(s1);
+        tm.addSubtask(s2);
+        assertEquals(Status.NEW, epic.getStatus());
+
+        s1.setStatus(Status.DONE); // Изменение того же объекта, что хранится в менеджере
+        tm.updateSubtask(s1);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        s2.setStatus(Status.DONE);
+        tm.updateSubtask(s2);
+        assertEquals(Status.DONE, epic.getStatus());
+
+        tm.deleteSubtaskById(s2.getId());
+        assertEquals(Status.DONE, epic.getStatus());
+        Subtask s3 = new Subtask("S3", "D3", Status.IN_PROGRESS, epic.getId(), null, null);
+        tm.addSubtask(s3);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        tm.deleteAllSubtasks();
+        assertEquals(Status.NEW, epic.getStatus()); // Эпик без подзадач снова NEW
+    }
+
+    @Test
+    void testEpicTimeWindowFollowsSubtasks() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        Epic epic = new Epic("E1", "D1");
+        tm.addEpic(epic);
+        Subtask early = new Subtask("S1", "D1", Status.NEW, epic.getId(), Duration.ofMinutes(30), baseTime);
+        Subtask late = new Subtask("S2", "D2", Status.NEW, epic.getId(),
+                Duration.ofMinutes(60), baseTime.plusHours(2));
+        tm.addSubtask(early);
+        tm.addSubtask(late);
+        Epic stored = tm.getEpicById(epic.getId());
+        assertEquals(baseTime, stored.getStartTime());
+        assertEquals(baseTime.plusHours(3), stored.getEndTime());
+        assertEquals(Duration.ofHours(3), stored.getDuration());
+
+        late.setStartTime(baseTime.plusHours(5)); // Изменение того же объекта, что хранится в менеджере
+        tm.updateSubtask(late);
+        assertEquals(baseTime.plusHours(6), tm.getEpicById(epic.getId()).getEndTime());
+
+        tm.deleteSubtaskById(early.getId());
+        assertEquals(baseTime.plusHours(5), tm.getEpicById(epic.getId()).getStartTime());
+        assertEquals(Duration.ofHours(1), tm.getEpicById(epic.getId()).getDuration());
+
+        tm.deleteSubtaskById(late.getId());
+        assertNull(tm.getEpicById(epic.getId()).getStartTime());
+        assertNull(tm.getEpicById(epic.getId()).getDuration());
+    }
+
+    @Test
+    void testFindTasksByTypeAndStatus() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        Task task = new Task("T1", "D1");
+        tm.addTask(task);
+        Epic epic = new Epic("E1", "D1");
+        tm.addEpic(epic);
+        Subtask subtask = new Subtask("S1", "D1", Status.NEW, epic.getId(), null, null);
+        tm.addSubtask(subtask);
+        assertEquals(List.of(epic), tm.findTasks(TaskType.EPIC, Status.NEW));
+
+        task.setStatus(Status.DONE); // Изменение того же объекта, что хранится в менеджере
+        tm.updateTask(task);
+        subtask.setStatus(Status.IN_PROGRESS);
+        tm.updateSubtask(subtask);
+        assertEquals(List.of(task), tm.findTasks(TaskType.TASK, Status.DONE));
+        assertTrue(tm.findTasks(TaskType.TASK, Status.NEW).isEmpty());
+        assertEquals(List.of(epic), tm.findTasks(TaskType.EPIC, Status.IN_PROGRESS)); // Статус эпика пересчитан
+        assertEquals(List.of(subtask), tm.findTasks(TaskType.SUBTASK, null));
+
+        tm.deleteEpicById(epic.getId());
+        assertTrue(tm.findTasks(TaskType.SUBTASK, null).isEmpty());
+        assertTrue(tm.findTasks(TaskType.EPIC, null).isEmpty());
+    }
+
+    @Test
+    void testPrioritizedRangeMatchesLinearScan() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        for (int i = 0; i < 50; i++) {
+            tm.addTask(new Task("T" + i, "D", Status.NEW, Duration.ofMinutes(45), baseTime.plusHours(i)));
+        }
+        LocalDateTime from = baseTime.plusHours(10).plusMinutes(30);
+        LocalDateTime to = baseTime.plusHours(20);
+        List<Task> expected = tm.getPrioritizedTasks().stream()
+                .filter(task -> task.getStartTime().isBefore(to) && task.getEndTime().isAfter(from))
+                .toList();
+        assertEquals(expected, tm.getPrioritizedTasks(from, to));
+        assertEquals(tm.getPrioritizedTasks(), tm.getPrioritizedTasks(null, null));
+    }
+
+    /**
+     * Проверка поиска свободного промежутка и автоматического размещения задач без пересечений.
+     */
+    @Test
+    void testFreeSlotAndAutoSchedule() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        tm.addTask(new Task("Busy1", "D", Status.NEW, Duration.ofMinutes(60), baseTime));
+        tm.addTask(new Task("Busy2", "D", Status.NEW, Duration.ofMinutes(60), baseTime.plusMinutes(90)));
+
+        assertEquals(baseTime.plusMinutes(61), tm.findFreeSlot(Duration.ofMinutes(20), baseTime, baseTime.plusDays(1)));
+        assertEquals(baseTime.plusMinutes(151), tm.findFreeSlot(Duration.ofMinutes(40), baseTime, baseTime.plusDays(1)));
+        assertNull(tm.findFreeSlot(Duration.ofMinutes(40), baseTime, baseTime.plusMinutes(150)));
+
+        Epic epic = new Epic("E", "D");
+        tm.addEpic(epic);
+        Task stored = new Task("Stored", "D", Status.NEW, Duration.ofMinutes(20), null);
+        tm.addTask(stored);
+        List<Task> batch = List.of(
+                stored,
+                new Task("New", "D", Status.NEW, Duration.ofMinutes(30), null),
+                new Subtask("Sub", "D", Status.NEW, epic.getId(), Duration.ofMinutes(10), null),
+                new Task("Huge", "D", Status.NEW, Duration.ofDays(2), null));
+        List<Task> unplaced = tm.autoSchedule(batch, baseTime, baseTime.plusDays(1));
+
+        assertEquals(List.of(batch.get(3)), unplaced);
+        assertNull(batch.get(3).getStartTime());
+        assertEquals(baseTime.plusMinutes(61), stored.getStartTime());
+        assertEquals(5, tm.getPrioritizedTasks().size()); // Эпик в расписание не входит
+        List<Task> schedule = tm.getPrioritizedTasks();
+        for (int i = 1; i < schedule.size(); i++) {
+            assertFalse(schedule.get(i - 1).isOverlapping(schedule.get(i)));
+        }
+        assertEquals(schedule.get(schedule.size() - 1).getStartTime(), tm.getEpicById(epic.getId()).getStartTime());
+    }
+
+    /**
+     * Проверка пакетных операций: атомарность при пересечении, обновление без конфликта с собой, удаление эпика.
+     */
+    @Test
+    void testBatchOperations() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        tm.addTask(new Task("Existing", "D", Status.NEW, Duration.ofMinutes(30), baseTime));
+        Epic epic = new Epic("E", "D");
+        tm.addEpic(epic);
+
+        List<Task> conflicting = List.of(
+                new Task("A", "D", Status.NEW, Duration.ofMinutes(30), baseTime.plusHours(1)),
+                new Task("B", "D", Status.NEW, Duration.ofMinutes(30), baseTime.plusHours(1).plusMinutes(10)));
+        assertThrows(TimeConflictException.class, () -> tm.addAll(conflicting));
+        assertEquals(1, tm.getAllTasks().size()); // Пакет не применен частично
+
+        Subtask first = new Subtask("S1", "D", Status.DONE, epic.getId(),
+                Duration.ofMinutes(30), baseTime.plusHours(2));
+        Subtask second = new Subtask("S2", "D", Status.NEW, epic.getId(),
+                Duration.ofMinutes(30), baseTime.plusHours(3));
+        Task plain = new Task("Plain", "D", Status.NEW, Duration.ofMinutes(30), baseTime.plusHours(4));
+        tm.addAll(List.of(first, second, plain));
+        assertEquals(Status.IN_PROGRESS, tm.getEpicById(epic.getId()).getStatus());
+        assertEquals(List.of(first.getId(), second.getId()), tm.getEpicById(epic.getId()).getSubtaskIds());
+
+        Subtask movedSecond = new Subtask("S2", "D", Status.DONE, epic.getId(),
+                Duration.ofMinutes(40), baseTime.plusHours(3)); // Пересекается только со своей прежней версией
+        movedSecond.setId(second.getId());
+        tm.updateAll(List.of(movedSecond));
+        assertEquals(Status.DONE, tm.getEpicById(epic.getId()).getStatus());
+        assertEquals(baseTime.plusHours(3).plusMinutes(40), tm.getEpicById(epic.getId()).getEndTime());
+
+        tm.deleteAll(List.of(epic.getId(), plain.getId()));
+        assertTrue(tm.getAllSubtasks().isEmpty());
+        assertEquals(1, tm.getPrioritizedTasks().size());
+        assertTrue(tm.findTasks(TaskType.SUBTASK, null).isEmpty());
+    }
+
+    /**
+     * Проверка, что страницы по курсору совпадают с соответствующими отрезками полного списка.
+     */
+    @Test
+    void testPagesMatchFullListing() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        for (int i = 0; i < 40; i++) {
+            Task task = new Task("T" + i, "D", i % 2 == 0 ? Status.NEW : Status.DONE,
+                    Duration.ofMinutes(10), baseTime.plusHours(40 - i));
+            tm.addTask(task);
+        }
+        tm.deleteTaskById(5);
+        List<Task> all = tm.findTasks(TaskType.TASK, null);
+        List<Task> paged = new java.util.ArrayList<>();
+        for (List<Task> page = tm.getPage(TaskType.TASK, null, 0, 7); !page.isEmpty();
+             page = tm.getPage(TaskType.TASK, null, page.get(page.size() - 1).getId(), 7)) {
+            paged.addAll(page);
+        }
+        assertEquals(all, paged);
+        assertEquals(tm.findTasks(TaskType.TASK, Status.DONE).subList(0, 4),
+                tm.getPage(TaskType.TASK, Status.DONE, 0, 4));
+
+        List<Task> schedule = new java.util.ArrayList<>();
+        for (List<Task> page = tm.getPrioritizedPage(null, 0, 6); !page.isEmpty(); ) {
+            schedule.addAll(page);
+            Task last = page.get(page.size() - 1);
+            page = tm.getPrioritizedPage(last.getStartTime(), last.getId(), 6);
+        }
+        assertEquals(tm.getPrioritizedTasks(), schedule);
+    }
+
+    /**
+     * Проверка постраничной выдачи с фильтром по статусу: страницы редкого статуса совпадают с полной выборкой
+     * и после перевода задач между статусами.
+     */
+    @Test
+    void testFilteredPagesFollowStatusChanges() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        for (int i = 0; i < 500; i++) {
+            tm.addTask(new Task("T" + i, "D", i % 50 == 0 ? Status.DONE : Status.NEW, null, null));
+        }
+        Task moved = tm.findTasks(TaskType.TASK, Status.NEW).get(100);
+        moved.setStatus(Status.DONE);
+        tm.updateTask(moved);
+        tm.deleteTaskById(tm.findTasks(TaskType.TASK, Status.DONE).get(0).getId());
+
+        List<Task> paged = new java.util.ArrayList<>();
+        for (List<Task> page = tm.getPage(TaskType.TASK, Status.DONE, 0, 3); !page.isEmpty();
+             page = tm.getPage(TaskType.TASK, Status.DONE, page.get(page.size() - 1).getId(), 3)) {
+            paged.addAll(page);
+        }
+        assertEquals(tm.findTasks(TaskType.TASK, Status.DONE), paged);
+        assertEquals(10, paged.size());
+        assertTrue(paged.stream().allMatch(task -> task.getStatus() == Status.DONE));
+    }
+
+    /**
+     * Проверка версий отдельных задач: меняется только версия измененной задачи и ее эпика.
+     */
+    @Test
+    void testEntityVersionsChangeOnlyForModifiedEntities() {
+        InMemoryTaskManager tm = new InMemoryTaskManager();
+        Task task = new Task("T", "D");
+        tm.addTask(task);
+        Epic epic = new Epic("E", "D");
+        tm.addEpic(epic);
+        Subtask subtask = new Subtask("S", "D", Status.NEW, epic.getId(), null, null);
+        tm.addSubtask(subtask);
+        long taskVersion = tm.getEntityVersion(task.getId());
+        long epicVersion = tm.getEntityVersion(epic.getId());
+        long subtaskVersion = tm.getEntityVersion(subtask.getId());
+
+        subtask.setStatus(Status.DONE);
+        tm.updateSubtask(subtask);
+        assertEquals(taskVersion, tm.getEntityVersion(task.getId()));
+        assertNotEquals(subtaskVersion, tm.getEntityVersion(subtask.getId()));
+        assertNotEquals(epicVersion, tm.getEntityVersion(epic.getId()), "Статус эпика вычисляется по подзадачам");
+
+        long before = tm.getEntityVersion(task.getId());
+        tm.deleteTaskById(task.getId());
+        assertEquals(0, tm.getEntityVersion(task.getId()));
+        tm.internalAddTask(task); // Повторное добавление с тем же id получает новую версию
+        assertTrue(tm.getEntityVersion(task.getId()) > before);
+    }
+}
@@ -0,0 +1,95 @@
+package taskmanager.core.managers;
+
+import org.junit.jupiter.api.Test;
+import taskmanager.core.model.Task;
+import taskmanager.core.util.IntSet;
+import taskmanager.core.util.Status;
+import taskmanager.core.util.TestData;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты индекса временных интервалов {@link TimeIntervalIndex}.
+ */
+class TimeIntervalIndexTest {
+    LocalDateTime baseTime = TestData.BASE_TIME;
+
+    private Task task(int id, int startMinutes, int durationMinutes) {
+        Task task = new Task("T" + id, "D", Status.NEW,
+                Duration.ofMinutes(durationMinutes), baseTime.plusMinutes(startMinutes));
+        task.setId(id);
+        return task;
+    }
+
+    /**
+     * Проверка, что касание границ считается пересечением, как в Task.isOverlapping.
+     */
+    @Test
+    void testBoundariesAreInclusive() {
+        TimeIntervalIndex index = new TimeIntervalIndex();
+        index.add(task(1, 0, 60));
+        assertTrue(index.overlaps(task(2, 60, 30))); // Начало совпадает с окончанием существующей
+        assertTrue(index.overlaps(task(3, -30, 30))); // Окончание совпадает с началом существующей
+        assertFalse(index.overlaps(task(4, 61, 30)));
+    }
+
+    /**
+     * Проверка, что удаление по id убирает интервал из индекса.
+     */
+    @Test
+    void testRemoveById() {
+        TimeIntervalIndex index = new TimeIntervalIndex();
+        index.add(task(1, 0, 60));
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertFalse(index.overlaps(task(2, 10, 10)));
+    }
+
+    /**
+     * Сравнение результатов индекса с полным перебором через Task.isOverlapping.
+     */
+    @Test
+    void testMatchesLinearScan() {
+        Random random = new Random(42);
+        TimeIntervalIndex index = new TimeIntervalIndex();
+        List<Task> stored = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            Task task = task(id, random.nextInt(100_000), 1 + random.nextInt(120));
+            index.add(task);
+            stored.add(task);
+            if (id % 3 == 0) { // Периодическое удаление для проверки перебалансировки
+                Task removed = stored.remove(random.nextInt(stored.size()));
+                index.remove(removed.getId());
+            }
+        }
+        for (int i = 0; i < 2_000; i++) {
+            Task probe = task(10_000 + i, random.nextInt(100_000), 1 + random.nextInt(120));
+            boolean expected = stored.stream().anyMatch(existing -> existing.isOverlapping(probe));
+            assertEquals(expected, index.overlaps(probe));
+        }
+    }
+
+    /**
+     * Проверка, что пересечения с исключенными id не учитываются, а с остальными находятся.
+     */
+    @Test
+    void testOverlapsIgnoringIds() {
+        TimeIntervalIndex index = new TimeIntervalIndex();
+        for (int id = 1; id <= 100; id++) {
+            index.add(task(id, id * 100, 50));
+        }
+        IntSet ignored = new IntSet();
+        ignored.add(5);
+        assertFalse(index.overlaps(task(5, 510, 20), ignored)); // Прежняя версия той же задачи
+        assertTrue(index.overlaps(task(5, 560, 50), ignored)); // Заходит на задачу 6
+        ignored.add(6);
+        assertFalse(index.overlaps(task(5, 560, 50), ignored));
+        assertEquals(index.overlaps(task(200, 4_020, 10)), index.overlaps(task(200, 4_020, 10), new IntSet()));
+    }
+}
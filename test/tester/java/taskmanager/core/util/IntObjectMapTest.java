@@ -0,0 +1,75 @@
+package taskmanager.core.util;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import taskmanager.core.model.Epic;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты примитивных коллекций {@link IntObjectMap} и {@link IntSet}.
+ */
+class IntObjectMapTest {
+
+    /**
+     * Сравнение с HashMap на случайной последовательности вставок и удалений (с коллизиями и ростом таблицы).
+     */
+    @Test
+    void testMatchesHashMap() {
+        Random random = new Random(7);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000) * (random.nextBoolean() ? 1 : 65_536); // Ключи с одинаковыми младшими битами
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    /**
+     * Проверка множества: ноль, дубликаты, удаление и выдача по возрастанию.
+     */
+    @Test
+    void testIntSet() {
+        IntSet set = new IntSet();
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        for (int value = 100; value > 0; value--) {
+            set.add(value * 32);
+        }
+        assertFalse(set.add(64));
+        assertTrue(set.remove(64));
+        assertFalse(set.contains(64));
+        assertTrue(set.contains(0));
+        int[] values = set.toArray();
+        assertEquals(100, values.length);
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, values);
+    }
+
+    /**
+     * Проверка, что id подзадач эпика в JSON остаются массивом чисел.
+     */
+    @Test
+    void testEpicJsonShapeIsPreserved() {
+        Gson gson = new Gson();
+        Epic epic = new Epic("E", "D");
+        epic.setId(1);
+        epic.addSubtask(3);
+        epic.addSubtask(2);
+        String json = gson.toJson(epic);
+        assertTrue(json.contains("\"subtaskIds\":[2,3]"), json);
+        Epic parsed = gson.fromJson(json, Epic.class);
+        assertEquals(List.of(2, 3), parsed.getSubtaskIds());
+    }
+}
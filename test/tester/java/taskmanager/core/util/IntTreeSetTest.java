@@ -0,0 +1,49 @@
+package taskmanager.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты упорядоченного множества {@link IntTreeSet}.
+ */
+class IntTreeSetTest {
+
+    /**
+     * Сравнение с TreeSet на случайной последовательности вставок и удалений, включая выборки после курсора.
+     */
+    @Test
+    void testMatchesTreeSet() {
+        Random random = new Random(11);
+        IntTreeSet set = new IntTreeSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(3_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            if (i % 1_000 == 0) {
+                int after = random.nextInt(3_000);
+                int[] page = new int[25];
+                int count = set.page(after, page, page.length);
+                int[] expectedPage = expected.tailSet(after, false).stream().limit(25).mapToInt(Integer::intValue)
+                        .toArray();
+                assertArrayEquals(expectedPage, Arrays.copyOf(page, count));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), set.toArray());
+        assertTrue(set.contains(expected.first()));
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertTrue(set.add(5));
+        assertArrayEquals(new int[]{5}, set.toArray());
+    }
+}
@@ -2,7 +2,10 @@ package taskmanager.core.util;
 
 import org.junit.jupiter.api.Test;
 import taskmanager.core.managers.*;
+import taskmanager.core.model.Task;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -13,6 +16,19 @@ public class ManagersTest {
         HistoryManager historyManager = Managers.getDefaultHistory(); // Возвращает историю, которая инициализирована
         assertNotNull(historyManager); // Метод не возвращает null
         assertTrue(historyManager.getHistory().isEmpty()); // История пустая, только что созданная
+        assertInstanceOf(BoundedHistoryManager.class, historyManager); // Просмотр не выделяет память
+    }
+
+    @Test
+    void getDefaultWithCapacityBoundsHistory() {
+        TaskManager tm = Managers.getDefault(2);
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task("T" + i, "D");
+            tm.addTask(task);
+            tm.getTaskById(task.getId());
+        }
+        assertEquals(2, tm.getHistory().size()); // Самый старый просмотр вытеснен
+        assertEquals("T2", tm.getHistory().get(1).getTitle());
     }
 
     @Test
@@ -0,0 +1,66 @@
+package taskmanager.core.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты неизменяемого отображения {@link PersistentSortedMap}.
+ */
+class PersistentSortedMapTest {
+
+    /**
+     * Сравнение с TreeMap на случайных вставках и удалениях; прежние версии при этом не меняются.
+     */
+    @Test
+    void testMatchesTreeMapAndKeepsOldVersions() {
+        Random random = new Random(7);
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        List<PersistentSortedMap<Integer, String>> versions = new ArrayList<>();
+        List<List<String>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, "v" + i);
+                map = map.plus(key, "v" + i);
+            }
+            assertEquals(expected.get(key), map.get(key));
+            if (i % 2_000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new ArrayList<>(expected.values()));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        int middle = map.size() / 2;
+        assertEquals(new ArrayList<>(expected.values()).get(middle), map.values().get(middle));
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(expectedVersions.get(i), versions.get(i).values());
+        }
+    }
+
+    /**
+     * Удаление отсутствующего ключа возвращает то же отображение, список значений неизменяем.
+     */
+    @Test
+    void testMissingKeyKeepsSameVersion() {
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.<Integer, String>empty(Comparator.naturalOrder())
+                .plus(1, "a").plus(2, "b");
+        assertSame(map, map.minus(3));
+        assertSame(map.values(), map.values());
+        assertThrows(UnsupportedOperationException.class, () -> map.values().add("c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> map.values().get(2));
+        assertEquals(List.of("a"), map.minus(2).values());
+        assertEquals(List.of("a", "b"), map.values());
+    }
+}
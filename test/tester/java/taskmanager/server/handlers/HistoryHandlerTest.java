@@ -46,4 +46,30 @@ class HistoryHandlerTest extends BaseHttpHandlerTest {
         assertEquals(200, response.statusCode());
         assertTrue(response.body().contains("History Task"));
     }
+
+    @org.junit.jupiter.api.Test
+    void testGetHistory_unchanged_returns304() throws Exception {
+        Task task = new Task("History Task", "Desc");
+        taskManager.addTask(task);
+        taskManager.getTaskById(task.getId());
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/history"))
+                .GET()
+                .build();
+        HttpResponse<String> first = client.send(request, HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/history"))
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        HttpResponse<String> unchanged = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, unchanged.statusCode());
+        assertEquals("", unchanged.body());
+
+        taskManager.getTaskById(task.getId()); // Новый просмотр меняет версию истории
+        assertEquals(200, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
 }
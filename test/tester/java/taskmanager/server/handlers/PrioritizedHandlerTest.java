@@ -54,4 +54,87 @@ class PrioritizedHandlerTest extends BaseHttpHandlerTest {
         assertEquals(200, response.statusCode());
         assertTrue(response.body().contains("T2") && response.body().contains("T1"));
     }
+
+    @org.junit.jupiter.api.Test
+    void testGetPrioritizedTasks_range_returnsIntersectingTasks() throws Exception {
+        LocalDateTime base = taskmanager.core.util.TestData.BASE_TIME;
+        Task running = new Task("Running", "Desc", taskmanager.core.util.Status.NEW,
+                Duration.ofHours(2), base.minusHours(1)); // Началась до диапазона и заходит в него
+        Task inside = new Task("Inside", "Desc", taskmanager.core.util.Status.NEW,
+                Duration.ofMinutes(30), base.plusHours(3));
+        Task after = new Task("After", "Desc", taskmanager.core.util.Status.NEW,
+                Duration.ofMinutes(30), base.plusDays(1));
+        taskManager.addTask(running);
+        taskManager.addTask(inside);
+        taskManager.addTask(after);
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?from=" + base + "&to=" + base.plusHours(12)))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("Running") && response.body().contains("Inside"));
+        assertFalse(response.body().contains("After"));
+
+        HttpRequest invalid = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?from=tomorrow"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(invalid, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testGetFreeSlot_returnsEarliestGap() throws Exception {
+        LocalDateTime base = taskmanager.core.util.TestData.BASE_TIME;
+        taskManager.addTask(new Task("Busy", "Desc", taskmanager.core.util.Status.NEW,
+                Duration.ofHours(1), base));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/free-slot?duration=30&from=" + base
+                        + "&to=" + base.plusHours(4)))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains(base.plusHours(1).plusMinutes(1).toString()));
+
+        HttpRequest full = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized/free-slot?duration=30&from=" + base
+                        + "&to=" + base.plusMinutes(50)))
+                .GET()
+                .build();
+        assertEquals(404, client.send(full, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testGetPrioritizedTasks_pagesFollowStartTimeCursor() throws Exception {
+        LocalDateTime base = taskmanager.core.util.TestData.BASE_TIME;
+        for (int i = 4; i >= 0; i--) { // Порядок добавления не совпадает с порядком расписания
+            taskManager.addTask(new Task("Item" + i, "Desc", taskmanager.core.util.Status.NEW,
+                    Duration.ofMinutes(30), base.plusHours(i)));
+        }
+
+        HttpRequest first = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?limit=3"))
+                .GET()
+                .build();
+        HttpResponse<String> firstPage = client.send(first, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, firstPage.statusCode());
+        assertTrue(firstPage.body().indexOf("Item0") < firstPage.body().indexOf("Item2"));
+        assertFalse(firstPage.body().contains("Item3"));
+        String cursor = firstPage.headers().firstValue("X-Next-Cursor").orElseThrow();
+
+        HttpRequest second = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?limit=3&cursor="
+                        + java.net.URLEncoder.encode(cursor, java.nio.charset.StandardCharsets.UTF_8)))
+                .GET()
+                .build();
+        HttpResponse<String> secondPage = client.send(second, HttpResponse.BodyHandlers.ofString());
+        assertTrue(secondPage.body().contains("Item3") && secondPage.body().contains("Item4"));
+        assertFalse(secondPage.body().contains("Item2"));
+        assertTrue(secondPage.headers().firstValue("X-Next-Cursor").isEmpty());
+    }
 }
@@ -168,4 +168,209 @@ class TaskHandlerTest extends BaseHttpHandlerTest {
         assertEquals(200, response.statusCode());
         assertTrue(taskManager.getAllTasks().isEmpty());
     }
+
+    /**
+     * Проверка, что GET /tasks?status=IN_PROGRESS возвращает только задачи с этим статусом,
+     * а некорректный статус - 400.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTasksByStatus_returnsOnlyMatches() throws Exception {
+        Task started = new Task("T1", "D1");
+        started.setStatus(taskmanager.core.util.Status.IN_PROGRESS);
+        taskManager.addTask(started);
+        taskManager.addTask(new Task("T2", "D2"));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=IN_PROGRESS"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(1, tasks.length);
+        assertEquals(started.getId(), tasks[0].getId());
+
+        HttpRequest invalid = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=UNKNOWN"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(invalid, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Проверяет, что большой список отправляется потоком (chunked) и совпадает с сериализацией через gson.toJson.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTasks_largeListIsStreamed() throws Exception {
+        for (int i = 0; i < 5_000; i++) {
+            taskManager.addTask(new Task("T" + i, "D" + i));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("chunked", response.headers().firstValue("Transfer-Encoding").orElse(null));
+        assertEquals(gson.toJson(taskManager.getAllTasks()), response.body());
+    }
+
+    /**
+     * Проверяет постраничную выдачу: страницы по возрастанию id без пропусков и курсор только у неполной выдачи.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTasks_pagesFollowCursor() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            taskManager.addTask(new Task("T" + i, "D" + i));
+        }
+        taskManager.deleteTaskById(3);
+
+        java.util.List<Integer> seen = new java.util.ArrayList<>();
+        String cursor = "0";
+        int pages = 0;
+        while (cursor != null) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks?limit=3&cursor=" + cursor))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            for (Task task : gson.fromJson(response.body(), Task[].class)) {
+                seen.add(task.getId());
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+            pages++;
+        }
+        assertEquals(java.util.List.of(1, 2, 4, 5, 6, 7), seen);
+        assertEquals(2, pages);
+
+        HttpRequest invalid = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=0"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(invalid, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Проверяет постраничную выдачу с фильтром ?status=: курсор ведет только по задачам нужного статуса.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTasks_filteredPagesFollowCursor() throws Exception {
+        java.util.List<Integer> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Task task = new Task("T" + i, "D" + i);
+            task.setStatus(i % 7 == 0 ? taskmanager.core.util.Status.DONE : taskmanager.core.util.Status.NEW);
+            taskManager.addTask(task);
+            if (i % 7 == 0) {
+                expected.add(task.getId());
+            }
+        }
+
+        java.util.List<Integer> seen = new java.util.ArrayList<>();
+        String cursor = "0";
+        while (cursor != null) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks?status=DONE&limit=4&cursor=" + cursor))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            for (Task task : gson.fromJson(response.body(), Task[].class)) {
+                assertEquals(taskmanager.core.util.Status.DONE, task.getStatus());
+                seen.add(task.getId());
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        }
+        assertEquals(expected, seen);
+    }
+
+    /**
+     * Проверяет условный GET: 304 без изменений и новый список после изменения менеджера напрямую.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTasks_ifNoneMatch_returns304UntilModified() throws Exception {
+        taskManager.addTask(new Task("T1", "D1"));
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+        HttpResponse<String> first = client.send(request, HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        taskManager.addEpic(new taskmanager.core.model.Epic("E1", "D1")); // Другая коллекция не меняет метку
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        taskManager.addTask(new Task("T2", "D2"));
+        HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertEquals(2, gson.fromJson(changed.body(), Task[].class).length);
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    /**
+     * Проверяет, что ответ 400 на некорректные параметры не получает ETag, а корректный запрос получает.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTasks_badRequest_hasNoETag() throws Exception {
+        for (String query : new String[]{"?limit=0", "?cursor=abc", "?status=unknown"}) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks" + query))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+            assertTrue(response.headers().firstValue("ETag").isEmpty(), query);
+        }
+        HttpRequest valid = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=10"))
+                .GET()
+                .build();
+        assertTrue(client.send(valid, HttpResponse.BodyHandlers.ofString()).headers().firstValue("ETag").isPresent());
+    }
+
+    /**
+     * Проверяет, что повторный GET /tasks/{id} отдается из кеша, изменение задачи сразу видно в ответе,
+     * а кешированные ответы других задач остаются действительными.
+     */
+    @org.junit.jupiter.api.Test
+    void testGetTaskById_cachedUntilModified() throws Exception {
+        Task task = new Task("T1", "D1");
+        taskManager.addTask(task);
+        Task other = new Task("T2", "D2");
+        taskManager.addTask(other);
+        HttpRequest otherRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + other.getId()))
+                .GET()
+                .build();
+        client.send(otherRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + task.getId()))
+                .GET()
+                .build();
+        String first = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        String second = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+
+        assertEquals(first, second);
+        assertEquals(1, server.getResponseCache().getHits());
+        assertEquals(2, taskManager.getHistory().size(), "Просмотр из кеша попадает в историю");
+
+        Task updated = new Task("T1-updated", "D1");
+        updated.setId(task.getId());
+        taskManager.updateTask(updated);
+        HttpResponse<String> changed = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertEquals("T1-updated", gson.fromJson(changed.body(), Task.class).getTitle());
+        client.send(otherRequest, HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, server.getResponseCache().getHits(), "Изменение одной задачи не сбрасывает ответы других");
+    }
 }
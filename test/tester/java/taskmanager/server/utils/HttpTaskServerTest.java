@@ -0,0 +1,125 @@
+package taskmanager.server.utils;
+
+import org.junit.jupiter.api.Test;
+import taskmanager.core.managers.InMemoryTaskManager;
+import taskmanager.core.model.Task;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты режимов выполнения и ограничения числа запросов {@link HttpTaskServer}.
+ */
+class HttpTaskServerTest {
+    private static final int PORT = 8081;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder().uri(URI.create("http://localhost:" + PORT + path)).GET().build();
+    }
+
+    /**
+     * Проверка, что запрос сверх лимита получает 503, пока принятый запрос не завершится.
+     */
+    @Test
+    void testRequestsOverLimitAreRejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryTaskManager slowManager = new InMemoryTaskManager() {
+            @Override
+            public List<Task> getAllTasks() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS); // Имитация медленной обработки
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getAllTasks();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        HttpTaskServer server = new HttpTaskServer(slowManager, PORT);
+        server.setExecutor(executor);
+        server.setMaxInFlight(1);
+        server.start();
+        try {
+            CompletableFuture<HttpResponse<String>> slow = client.sendAsync(get("/tasks"),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            HttpResponse<String> rejected = client.send(get("/history"), HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, rejected.statusCode());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+
+            release.countDown();
+            assertEquals(200, slow.get(5, TimeUnit.SECONDS).statusCode());
+            assertEquals(200, client.send(get("/history"), HttpResponse.BodyHandlers.ofString()).statusCode());
+        } finally {
+            server.stop();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Проверка, что ошибка при потоковой отправке списка обрывает ответ, а не завершает его как полный.
+     */
+    @Test
+    void testStreamingFailureAbortsResponse() throws Exception {
+        InMemoryTaskManager failingManager = new InMemoryTaskManager();
+        for (int i = 0; i < 10_000; i++) {
+            failingManager.addTask(i == 5_000 ? new UnserializableTask() : new Task("T" + i, "D"));
+        }
+        HttpTaskServer server = new HttpTaskServer(failingManager, PORT);
+        server.start();
+        try {
+            assertThrows(IOException.class, () -> client.send(get("/tasks"), HttpResponse.BodyHandlers.ofString()));
+            assertEquals(200, client.send(get("/history"), HttpResponse.BodyHandlers.ofString()).statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Проверка обработки запросов в пуле платформенных потоков.
+     */
+    @Test
+    void testFixedPoolMode() throws Exception {
+        HttpTaskServer server = new HttpTaskServer(new InMemoryTaskManager(), PORT);
+        server.setExecutorMode(ExecutorMode.FIXED_POOL, 2);
+        server.start();
+        try {
+            assertEquals(200, client.send(get("/tasks"), HttpResponse.BodyHandlers.ofString()).statusCode());
+        } finally {
+            server.stop();
+        }
+        assertThrows(IllegalArgumentException.class, () -> server.setExecutorMode(ExecutorMode.FIXED_POOL, 0));
+    }
+
+    /**
+     * Задача, сериализация которой завершается ошибкой (поле закрытого класса JDK недоступно Gson).
+     */
+    private static class UnserializableTask extends Task {
+        private final Optional<String> broken = Optional.of("x");
+
+        UnserializableTask() {
+            super("Broken", "D");
+        }
+
+        @Override
+        public Task copy() { // Снимок списка должен сохранить неподдающееся сериализации поле
+            return this;
+        }
+    }
+}
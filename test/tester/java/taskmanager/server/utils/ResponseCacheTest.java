@@ -0,0 +1,64 @@
+package taskmanager.server.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты кеша готовых ответов {@link ResponseCache}.
+ */
+class ResponseCacheTest {
+
+    private static byte[] body(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Проверка, что запись отдается только для своей версии данных, а устаревшая удаляется.
+     */
+    @Test
+    void testEntryIsValidOnlyForItsVersion() {
+        ResponseCache cache = new ResponseCache();
+        cache.put("/tasks/1", 5, body("{\"id\":1}"));
+
+        assertArrayEquals(body("{\"id\":1}"), cache.get("/tasks/1", 5));
+        assertNull(cache.get("/tasks/1", 6), "После изменения данных запись устарела");
+        assertEquals(0, cache.size());
+        assertNull(cache.get("/tasks/1", 5));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        cache.put("/tasks/1", 7, body("new"));
+        cache.put("/tasks/1", 6, body("old")); // Ответ запоздавшего запроса не заменяет более новый
+        assertArrayEquals(body("new"), cache.get("/tasks/1", 7));
+    }
+
+    /**
+     * Проверка вытеснения давно не использованных записей по числу записей и по объему.
+     */
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() {
+        ResponseCache cache = new ResponseCache(2, 1024);
+        cache.put("/tasks/1", 1, body("a"));
+        cache.put("/tasks/2", 1, body("b"));
+        cache.get("/tasks/1", 1); // /tasks/2 становится самой старой записью
+        cache.put("/tasks/3", 1, body("c"));
+
+        assertNotNull(cache.get("/tasks/1", 1));
+        assertNull(cache.get("/tasks/2", 1));
+        assertNotNull(cache.get("/tasks/3", 1));
+
+        ResponseCache small = new ResponseCache(100, 80);
+        for (int i = 0; i < 10; i++) {
+            small.put("/tasks/" + i, 1, new byte[10]);
+        }
+        assertEquals(8, small.size(), "Суммарный объем не превышает лимит");
+        assertNull(small.get("/tasks/0", 1));
+        assertNotNull(small.get("/tasks/9", 1));
+
+        small.put("/history", 1, new byte[11]); // Больше 1/8 лимита - не кешируется
+        assertNull(small.get("/history", 1));
+    }
+}